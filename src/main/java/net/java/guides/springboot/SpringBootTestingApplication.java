@@ -1,13 +1,20 @@
 package net.java.guides.springboot;
 
+import net.java.guides.springboot.config.EmployeeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(EmployeeRuntimeHints.class)
 public class SpringBootTestingApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(SpringBootTestingApplication.class, args);
+		SpringApplication application = new SpringApplication(SpringBootTestingApplication.class);
+		// keeps the startup steps for /actuator/startup and the employee.startup.report log (StartupConfig)
+		application.setApplicationStartup(new BufferingApplicationStartup(4096));
+		application.run(args);
 	}
 
 }
@@ -0,0 +1,49 @@
+package net.java.guides.springboot.config;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.model.EmployeeEmail;
+import net.java.guides.springboot.model.EmployeeImport;
+import net.java.guides.springboot.model.EmployeeName;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * Reachability metadata for the native image (mvn -Pnative native:compile) that Spring AOT cannot infer on its own.
+ * The entity and the repository proxies are covered by the JPA and Spring Data AOT processing, what is left is
+ * reflection only reached at runtime: Jackson binding of the Lombok accessors, the projections of the dynamic
+ * {@code findByIdGreaterThanOrderByIdAsc(..., Class<T>)} query, the write-behind log entries, the import checkpoints
+ * and error reports, the change feed events, and the JCache provider the second-level cache looks up by name.
+ */
+public class EmployeeRuntimeHints implements RuntimeHintsRegistrar {
+    static final String WRITE_BEHIND_ENTRY = "net.java.guides.springboot.service.impl.EmployeeWriteBehindQueue$Entry";
+    static final String IMPORT_CHECKPOINT = "net.java.guides.springboot.service.impl.EmployeeImporter$Checkpoint";
+    static final String IMPORT_ERROR = "net.java.guides.springboot.service.impl.EmployeeImporter$ImportError";
+    static final String CACHING_PROVIDER = "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // getters/setters, builder and records as read and written by Jackson (JSON, CBOR, Smile, write-behind log, SSE)
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                Employee.class, EmployeeEmail.class, EmployeeName.class, EmployeeChange.class);
+        // projections are instantiated through their canonical constructor, the type only known at call time
+        hints.reflection().registerType(EmployeeEmail.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.reflection().registerType(EmployeeName.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.reflection().registerType(TypeReference.of(WRITE_BEHIND_ENTRY), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), EmployeeImport.class);
+        for (String importRecord : List.of(IMPORT_CHECKPOINT, IMPORT_ERROR)) {
+            hints.reflection().registerType(TypeReference.of(importRecord), MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+        }
+        // Caching.getCachingProvider(name) in SecondLevelCacheConfig, and the defaults it loads from the class path
+        hints.reflection().registerType(TypeReference.of(CACHING_PROVIDER), MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        hints.resources().registerPattern("reference.conf");
+        hints.resources().registerPattern("META-INF/services/javax.cache.spi.CachingProvider");
+    }
+}
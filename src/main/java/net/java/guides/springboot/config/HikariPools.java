@@ -0,0 +1,33 @@
+package net.java.guides.springboot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// connection pools created next to the application DataSource (replicas, shards), with its spring.datasource.hikari.* settings
+// and, in virtual thread mode, their own connection limit (see VirtualThreadConfig)
+final class HikariPools {
+
+    private HikariPools() {
+    }
+
+    static DataSource create(Environment environment, String url, String username, String password, String name) {
+        HikariDataSource pool = new HikariDataSource();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setPoolName("employee-" + name);
+        Binder binder = Binder.get(environment);
+        if (binder.bind("employee.virtual-threads.enabled", Boolean.class).orElse(false)) {
+            return VirtualThreadConfig.limitConnections(pool,
+                    binder.bind("employee.virtual-threads.connection-acquire-timeout", Duration.class)
+                            .orElse(VirtualThreadConfig.DEFAULT_ACQUIRE_TIMEOUT));
+        }
+        return pool;
+    }
+}
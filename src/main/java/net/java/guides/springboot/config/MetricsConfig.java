@@ -0,0 +1,40 @@
+package net.java.guides.springboot.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics beyond what Actuator instruments on its own (HTTP requests, repository invocations, HikariCP pool,
+ * Hibernate statistics): {@code @Timed} service methods and the number of SQL statements per request.
+ * Everything is scraped from /actuator/prometheus.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    // backs @Timed on the service implementations
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCountingHibernateProperties() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(name = "employee.metrics.request-statements.enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<StatementCountingFilter> statementCountingFilter(MeterRegistry meterRegistry,
+            @Value("${employee.metrics.request-statements.budget:10}") int budget) {
+        return new FilterRegistrationBean<>(new StatementCountingFilter(meterRegistry, budget));
+    }
+}
@@ -0,0 +1,66 @@
+package net.java.guides.springboot.config;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Per-request read-your-writes position for {@link ReplicaRoutingDataSource}: the time (epoch millis) of the last
+ * write the caller has seen committed. Read-only transactions only go to a replica that has applied everything up to
+ * that time. Set from the client's cookie by {@link ReadYourWritesFilter}, moved forward by {@link #written()}.
+ */
+public final class ReadYourWrites {
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    static void begin(long position, LongConsumer onWrite) {
+        CONTEXT.set(new Context(position, onWrite));
+    }
+
+    static void end() {
+        CONTEXT.remove();
+    }
+
+    // 0 outside a request, or when the caller has not written anything recently
+    static long position() {
+        Context context = CONTEXT.get();
+        return context == null ? 0 : context.position;
+    }
+
+    // called once a write is committed: later reads of the same caller must see it
+    public static void written() {
+        Context context = CONTEXT.get();
+        if (context != null) {
+            context.position = System.currentTimeMillis();
+            if (context.onWrite != null) {
+                context.onWrite.accept(context.position);
+            }
+        }
+    }
+
+    // carries the caller's position over to async work (streamed responses) running on another thread
+    static Runnable propagate(Runnable task) {
+        long position = position();
+        if (position == 0) {
+            return task;
+        }
+        return () -> {
+            begin(position, null);
+            try {
+                task.run();
+            } finally {
+                end();
+            }
+        };
+    }
+
+    private static final class Context {
+        private long position;
+        private final LongConsumer onWrite;
+
+        private Context(long position, LongConsumer onWrite) {
+            this.position = position;
+            this.onWrite = onWrite;
+        }
+    }
+}
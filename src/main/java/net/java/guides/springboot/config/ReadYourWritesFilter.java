@@ -0,0 +1,62 @@
+package net.java.guides.springboot.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Keeps a client's reads on the primary until the replicas have caught up with its own writes.
+ * The commit time of the client's last write travels in the {@link #COOKIE} cookie, which expires once any replica
+ * within the accepted lag is guaranteed to have it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    public static final String COOKIE = "EMPLOYEE_READ_AFTER";
+
+    private Duration maxLag;
+
+    public ReadYourWritesFilter(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.begin(position(request), position -> {
+            // writes are committed before the controller writes its body, so the response is still open here
+            if (!response.isCommitted()) {
+                Cookie cookie = new Cookie(COOKIE, Long.toString(position));
+                cookie.setPath("/");
+                cookie.setHttpOnly(true);
+                cookie.setMaxAge((int) Math.max(1, maxLag.toSeconds()));
+                response.addCookie(cookie);
+            }
+        });
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.end();
+        }
+    }
+
+    private static long position(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,31 @@
+package net.java.guides.springboot.config;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Measures how far a read replica is behind the primary, on a connection to that replica.
+ * Returns {@code null} when the replica is not replicating at all.
+ */
+@FunctionalInterface
+public interface ReplicaLagProbe {
+
+    Duration lag(Connection replica) throws SQLException;
+
+    // MySQL 8.0.22+; Seconds_Behind_Source is truncated to whole seconds, one is added so the lag is never underestimated
+    static ReplicaLagProbe mysql() {
+        return connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!status.next()) {
+                    return null;
+                }
+                long seconds = status.getLong("Seconds_Behind_Source");
+                return status.wasNull() ? null : Duration.ofSeconds(seconds + 1);
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package net.java.guides.springboot.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.TaskDecorator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in read/write splitting ({@code employee.datasource.replicas.enabled=true}): read-only transactions
+ * ({@code @Transactional(readOnly = true)} service methods and the repository finders) go to the replicas listed in
+ * {@code employee.datasource.replicas.urls}, writes to {@code spring.datasource.url}. See {@link ReplicaRoutingDataSource}.
+ * Every pool takes its settings from {@code spring.datasource.hikari.*}; replica lag is read with
+ * {@link ReplicaLagProbe#mysql()} unless another {@link ReplicaLagProbe} bean is defined.
+ * Cache misses (employee cache, second-level cache) are loaded from whichever database served the read, so an entry
+ * can be up to max-lag old when it is cached.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "employee.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                               ObjectProvider<ReplicaLagProbe> lagProbe,
+                                               @Value("${employee.datasource.replicas.urls}") List<String> urls,
+                                               @Value("${employee.datasource.replicas.username:${spring.datasource.username:}}") String username,
+                                               @Value("${employee.datasource.replicas.password:${spring.datasource.password:}}") String password,
+                                               @Value("${employee.datasource.replicas.max-lag:5s}") Duration maxLag,
+                                               @Value("${employee.datasource.replicas.probe-interval:1s}") Duration probeInterval) {
+        DataSource primary = HikariPools.create(environment, properties.determineUrl(), properties.determineUsername(),
+                properties.determinePassword(), "primary");
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            replicas.add(HikariPools.create(environment, urls.get(i), username, password, "replica-" + i));
+        }
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas,
+                lagProbe.getIfAvailable(ReplicaLagProbe::mysql), maxLag);
+        dataSource.start(probeInterval);
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${employee.datasource.replicas.max-lag:5s}") Duration maxLag) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration = new FilterRegistrationBean<>(new ReadYourWritesFilter(maxLag));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 100);
+        return registration;
+    }
+
+    // picked up by the application task executor, which runs the streamed GET /api/employees
+    @Bean
+    public TaskDecorator readYourWritesTaskDecorator() {
+        return ReadYourWrites::propagate;
+    }
+}
@@ -0,0 +1,184 @@
+package net.java.guides.springboot.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to a read replica and everything else to the primary.
+ * Each replica's lag is probed periodically and turned into the point in time it has applied everything up to; a
+ * read only goes to a replica that is within {@code maxLag} and has applied the caller's own last write
+ * ({@link ReadYourWrites}), otherwise it falls back to the primary, as it does when a replica refuses connections.
+ * The routing itself sits behind a {@link LazyConnectionDataSourceProxy}: the transaction's read-only flag is only
+ * known once it has begun, so the physical connection is fetched at the first statement.
+ */
+public class ReplicaRoutingDataSource extends DelegatingDataSource implements AutoCloseable {
+    static final String PRIMARY = "primary";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private DataSource primary;
+    private List<Replica> replicas = new ArrayList<>();
+    private ReplicaLagProbe lagProbe;
+    private long maxLagMillis;
+    private AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService prober;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReplicaLagProbe lagProbe, Duration maxLag) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.lagProbe = lagProbe;
+        this.maxLagMillis = maxLag.toMillis();
+        Router router = new Router();
+        router.afterPropertiesSet();
+        setTargetDataSource(new LazyConnectionDataSourceProxy(router));
+    }
+
+    // probes right away so replicas serve reads from the start, then on every interval from a daemon thread
+    public void start(Duration probeInterval) {
+        probe();
+        prober = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "replica-lag-probe");
+            thread.setDaemon(true);
+            return thread;
+        });
+        prober.scheduleWithFixedDelay(this::probe, probeInterval.toMillis(), probeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void probe() {
+        for (Replica replica : replicas) {
+            // the time before the query, so the applied position is never overestimated
+            long probedAt = System.currentTimeMillis();
+            try (Connection connection = replica.dataSource.getConnection()) {
+                Duration lag = lagProbe.lag(connection);
+                if (lag == null) {
+                    replica.unavailable("not replicating");
+                } else {
+                    replica.available(probedAt - lag.toMillis());
+                }
+            } catch (SQLException | RuntimeException e) {
+                replica.unavailable(e.toString());
+            }
+        }
+    }
+
+    // the replica a read-only transaction of the current caller would be sent to, primary otherwise
+    String currentTarget() {
+        Replica replica = readReplica();
+        return replica != null ? replica.key : PRIMARY;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Replica readReplica() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        long oldest = System.currentTimeMillis() - maxLagMillis;
+        long lastWrite = ReadYourWrites.position();
+        // round robin, starting one further on each call
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            // strictly after the write: probe and commit in the same millisecond do not prove it was applied
+            if (replica.appliedUpTo >= oldest && replica.appliedUpTo > lastWrite) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private final class Router extends AbstractRoutingDataSource {
+
+        private Router() {
+            Map<Object, Object> targets = new HashMap<>();
+            targets.put(PRIMARY, primary);
+            replicas.forEach(replica -> targets.put(replica.key, replica.dataSource));
+            setTargetDataSources(targets);
+            setDefaultTargetDataSource(primary);
+            setLenientFallback(false);
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return currentTarget();
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Replica replica = readReplica();
+            if (replica == null) {
+                return primary.getConnection();
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                // out of rotation until the next successful probe, this read is served by the primary
+                replica.unavailable(e.toString());
+                return primary.getConnection();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return primary.getConnection(username, password);
+        }
+    }
+
+    private static final class Replica {
+        private final String key;
+        private final DataSource dataSource;
+        // epoch millis up to which the replica has applied the primary's writes
+        private volatile long appliedUpTo = Long.MIN_VALUE;
+
+        private Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+
+        private void available(long appliedUpTo) {
+            if (this.appliedUpTo == Long.MIN_VALUE) {
+                log.info("Read replica {} in rotation", key);
+            }
+            this.appliedUpTo = appliedUpTo;
+        }
+
+        private void unavailable(String reason) {
+            if (appliedUpTo != Long.MIN_VALUE) {
+                log.warn("Read replica {} out of rotation, reads fall back to the primary: {}", key, reason);
+            }
+            appliedUpTo = Long.MIN_VALUE;
+        }
+    }
+}
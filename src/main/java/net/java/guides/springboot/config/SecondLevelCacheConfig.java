@@ -0,0 +1,77 @@
+package net.java.guides.springboot.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import net.java.guides.springboot.model.Employee;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level and query cache for {@link Employee}, on a local Caffeine JCache.
+ * Every region is created here with an explicit size/TTL, Hibernate is told to fail on any region it would
+ * otherwise create with unbounded defaults. Hit/miss statistics are served by CacheStatisticsController.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SecondLevelCacheConfig {
+    private static final String ENABLED = "employee.second-level-cache.enabled";
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    public CacheManager hibernateCacheManager(
+            @Value("${employee.second-level-cache.maximum-size:10000}") long maximumSize,
+            @Value("${employee.second-level-cache.ttl:10m}") Duration ttl,
+            @Value("${employee.second-level-cache.query-maximum-size:1000}") long queryMaximumSize) {
+        // a URI of its own so several application contexts in one JVM never share cache state
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("employee-second-level-cache-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(Employee.class.getName(), boundedRegion(maximumSize, ttl));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, boundedRegion(queryMaximumSize, ttl));
+        // must never evict or expire before the query results, otherwise stale results could be served
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>());
+        return cacheManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "true", matchIfMissing = true)
+    public HibernatePropertiesCustomizer secondLevelCacheHibernateProperties(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+
+    // Hibernate turns the cache on by itself whenever a single region factory (hibernate-jcache) is on the class path
+    @Bean
+    @ConditionalOnProperty(name = ENABLED, havingValue = "false")
+    public HibernatePropertiesCustomizer noSecondLevelCacheHibernateProperties() {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> boundedRegion(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
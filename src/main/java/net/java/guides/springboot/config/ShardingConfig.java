@@ -0,0 +1,43 @@
+package net.java.guides.springboot.config;
+
+import net.java.guides.springboot.repository.ShardedEmployeeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Storage of the 'sharded' profile: employees spread over the databases listed in {@code employee.sharding.shards},
+ * with the email directory and the id allocator on the application DataSource. The shard pools are not beans, so
+ * the application DataSource stays the only one JPA, health and metrics see; ShardedEmployeeRepository closes them.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("sharded")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardedEmployeeRepository shardedEmployeeRepository(DataSource dataSource, Environment environment,
+                                                               @Value("${employee.sharding.shards}") List<String> urls,
+                                                               @Value("${employee.sharding.username:${spring.datasource.username:}}") String username,
+                                                               @Value("${employee.sharding.password:${spring.datasource.password:}}") String password,
+                                                               @Value("${employee.sharding.query-threads:16}") int queryThreads,
+                                                               @Value("${employee.sharding.initialize-schema:true}") boolean initializeSchema) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            shards.add(HikariPools.create(environment, urls.get(i), username, password, "shard-" + i));
+        }
+        if (initializeSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/sharding/directory.sql")).execute(dataSource);
+            ResourceDatabasePopulator shardSchema = new ResourceDatabasePopulator(new ClassPathResource("db/sharding/shard.sql"));
+            shards.forEach(shardSchema::execute);
+        }
+        return new ShardedEmployeeRepository(dataSource, shards, queryThreads);
+    }
+}
@@ -0,0 +1,70 @@
+package net.java.guides.springboot.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.StringJoiner;
+
+/**
+ * Startup tuning used by the 'fast-start' profile (application-fast-start.properties, {@code mvn -Pfast-start package}).
+ * Nothing here is conditional on properties, so the beans are the same whether or not the context was AOT-processed;
+ * the flags are read when the application is ready.
+ */
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+    private static final Logger log = LoggerFactory.getLogger(StartupConfig.class);
+    private static final int REPORTED_STEPS = 15;
+
+    // under spring.main.lazy-initialization the pool and JPA (with its schema validation) still start eagerly:
+    // a broken database or schema must fail the instance, not its first request
+    @Bean
+    public static LazyInitializationExcludeFilter eagerPersistence() {
+        return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady(ApplicationReadyEvent event) {
+        ConfigurableApplicationContext context = event.getApplicationContext();
+        if (context.getEnvironment().getProperty("employee.startup.report", Boolean.class, false)) {
+            report(event.getTimeTaken(), context.getBeanFactory().getApplicationStartup());
+        }
+        // the CDS training run of the fast-start build: the archive is written when the JVM exits
+        if (context.getEnvironment().getProperty("employee.startup.exit-on-ready", Boolean.class, false)) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private static void report(Duration timeTaken, ApplicationStartup applicationStartup) {
+        log.info("Started in {} ms", timeTaken.toMillis());
+        if (applicationStartup instanceof BufferingApplicationStartup bufferingStartup) {
+            // steps nest (a bean includes its dependencies), the slowest ones point at what to look into
+            bufferingStartup.getBufferedTimeline().getEvents().stream()
+                    .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                    .limit(REPORTED_STEPS)
+                    .forEach(event -> log.info("{} ms  {} {}", event.getDuration().toMillis(), event.getStartupStep().getName(),
+                            tags(event.getStartupStep())));
+        }
+    }
+
+    private static String tags(StartupStep step) {
+        StringJoiner tags = new StringJoiner(", ", "[", "]");
+        step.getTags().forEach(tag -> tags.add(tag.getKey() + "=" + tag.getValue()));
+        return tags.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package net.java.guides.springboot.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements each request makes Hibernate prepare and records them as
+ * {@code employee.request.statements{method, uri}}. Requests over the budget are logged as a warning, which is how
+ * an N+1 regression shows up in production. The count is also left in the {@link #STATEMENTS_ATTRIBUTE} request
+ * attribute for MockMvc tests to assert on.
+ */
+public class StatementCountingFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_ATTRIBUTE = StatementCountingFilter.class.getName() + ".statements";
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCountingFilter.class);
+
+    private MeterRegistry meterRegistry;
+    private int budget;
+
+    public StatementCountingFilter(MeterRegistry meterRegistry, int budget) {
+        this.meterRegistry = meterRegistry;
+        this.budget = budget;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        StatementCountingInspector.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = StatementCountingInspector.stop();
+            // the mapped pattern, not the raw path, so /api/employees/{id} is one series
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+            DistributionSummary.builder("employee.request.statements")
+                    .description("SQL statements prepared by Hibernate per HTTP request")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (statements > budget) {
+                log.warn("{} {} issued {} SQL statements, over the budget of {}", request.getMethod(), uri, statements, budget);
+            }
+        }
+    }
+}
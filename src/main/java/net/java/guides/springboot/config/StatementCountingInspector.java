@@ -0,0 +1,32 @@
+package net.java.guides.springboot.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}.
+ * Registered as the session factory's statement inspector by {@link MetricsConfig}; outside a counting scope
+ * (startup, async request threads) a statement costs one ThreadLocal read.
+ */
+public class StatementCountingInspector implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    // statements prepared since start(), 0 when nothing was started on this thread
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,73 @@
+package net.java.guides.springboot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in virtual thread mode ({@code employee.virtual-threads.enabled=true}, needs a Java 21 runtime).
+ * Tomcat requests and MVC async work (the streamed GET /api/employees) run on virtual threads, and every connection
+ * pool is wrapped in a {@link ConnectionLimitingDataSource} so they queue on a semaphore sized to that pool: the
+ * application pool here, the replica and shard pools where {@link HikariPools} creates them. DataSources built on top
+ * of those pools (the replica routing one) are left alone, they only hand out the pools' connections.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "employee.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+    static final Duration DEFAULT_ACQUIRE_TIMEOUT = Duration.ofSeconds(2);
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualThreadExecutor() {
+        // looked up reflectively so the project keeps compiling for Java 17
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("employee.virtual-threads.enabled=true requires Java 21 or later, running on "
+                    + Runtime.version(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(ExecutorService virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor);
+    }
+
+    // replaces the default thread pool used by Spring MVC for StreamingResponseBody and other async handlers
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor(ExecutorService virtualThreadExecutor) {
+        return new TaskExecutorAdapter(virtualThreadExecutor);
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${employee.virtual-threads.connection-acquire-timeout:2s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource pool) {
+                    return limitConnections(pool, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // after initialization, so the pool is already bound to its spring.datasource.hikari.* settings
+    static DataSource limitConnections(HikariDataSource pool, Duration acquireTimeout) {
+        return new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(), acquireTimeout);
+    }
+}
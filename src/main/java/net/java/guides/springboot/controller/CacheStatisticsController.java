@@ -0,0 +1,74 @@
+package net.java.guides.springboot.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import net.java.guides.springboot.service.impl.CachingEmployeeService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// hit ratios of both cache levels, to size employee.cache.* and employee.second-level-cache.* for the data set
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/cache")
+public class CacheStatisticsController {
+    private EntityManagerFactory entityManagerFactory;
+    private ObjectProvider<CachingEmployeeService> cachingEmployeeService;
+
+    public CacheStatisticsController(EntityManagerFactory entityManagerFactory,
+                                     ObjectProvider<CachingEmployeeService> cachingEmployeeService) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.cachingEmployeeService = cachingEmployeeService;
+    }
+
+    @GetMapping("statistics")
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        cachingEmployeeService.ifAvailable(service -> statistics.put("employeeCache", toMap(service.stats(), service.puts(), service.size())));
+
+        Statistics hibernateStatistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : hibernateStatistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = hibernateStatistics.getCacheRegionStatistics(regionName);
+            if (regionStatistics != null) {
+                regions.put(regionName, toMap(regionStatistics));
+            }
+        }
+        statistics.put("secondLevelCache", regions);
+        if (hibernateStatistics.isStatisticsEnabled()) {
+            statistics.put("queryCache", hitRatio(hibernateStatistics.getQueryCacheHitCount(), hibernateStatistics.getQueryCacheMissCount(),
+                    hibernateStatistics.getQueryCachePutCount()));
+        }
+        return statistics;
+    }
+
+    private static Map<String, Object> toMap(CacheStats stats, long puts, long size) {
+        Map<String, Object> map = hitRatio(stats.hitCount(), stats.missCount(), puts);
+        map.put("evictions", stats.evictionCount());
+        map.put("size", size);
+        return map;
+    }
+
+    private static Map<String, Object> toMap(CacheRegionStatistics stats) {
+        Map<String, Object> map = hitRatio(stats.getHitCount(), stats.getMissCount(), stats.getPutCount());
+        map.put("size", stats.getElementCountInMemory());
+        return map;
+    }
+
+    private static Map<String, Object> hitRatio(long hits, long misses, long puts) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("hits", hits);
+        map.put("misses", misses);
+        map.put("puts", puts);
+        map.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return map;
+    }
+}
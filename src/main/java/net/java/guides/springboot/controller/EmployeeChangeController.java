@@ -0,0 +1,81 @@
+package net.java.guides.springboot.controller;
+
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.service.impl.EmployeeChangeStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// change feed: GET /api/employees/changes?since={lastSeenSequence} as server-sent events, one event per created,
+// updated or deleted employee with the sequence as event id. Consumers keep the last id and resume from it (an
+// EventSource does so by itself through Last-Event-ID) instead of re-reading the whole table; without since the feed
+// starts at the current end. 410 Gone when the events after since were purged, the consumer must resync from
+// GET /api/employees
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Profile("!sharded")
+@RequestMapping("/api/employees/changes")
+public class EmployeeChangeController {
+    private EmployeeChangeStream changeStream;
+    private Duration timeout;
+
+    public EmployeeChangeController(EmployeeChangeStream changeStream,
+                                    @Value("${employee.changes.timeout:${spring.mvc.async.request-timeout:30s}}") Duration timeout) {
+        this.changeStream = changeStream;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(@RequestParam(name = "since", required = false) Long since,
+                                                    @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        // a reconnecting EventSource sends the original URL, its Last-Event-ID is further along
+        long from = lastEventId != null ? lastEventId : since != null ? since : changeStream.lastSequence();
+        if (from < 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!changeStream.isAvailable(from)) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        // the client reconnects after the timeout, from the last event it got
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        EmployeeChangeStream.Subscription subscription = changeStream.subscribe(from, new EmployeeChangeStream.Listener() {
+            @Override
+            public void onChanges(List<EmployeeChange> changes) throws IOException {
+                // the whole batch in one write and one flush
+                Set<ResponseBodyEmitter.DataWithMediaType> events = new LinkedHashSet<>();
+                for (EmployeeChange change : changes) {
+                    events.addAll(SseEmitter.event()
+                            .id(change.getSequence().toString())
+                            .data(change, MediaType.APPLICATION_JSON)
+                            .build());
+                }
+                emitter.send(events);
+            }
+
+            @Override
+            public void onExpired() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return ResponseEntity.ok(emitter);
+    }
+}
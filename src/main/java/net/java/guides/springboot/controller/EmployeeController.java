@@ -1,65 +1,391 @@
 package net.java.guides.springboot.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.servlet.http.HttpServletResponse;
+import net.java.guides.springboot.exception.DuplicateEmailException;
 import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeEmail;
+import net.java.guides.springboot.model.EmployeeName;
 import net.java.guides.springboot.service.EmployeeService;
+import net.java.guides.springboot.service.impl.EmployeeValidation;
+import net.java.guides.springboot.service.impl.EmployeeWriteBehindQueue;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+// servlet stack only, the 'reactive' profile serves the same paths from ReactiveEmployeeController
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/api/employees")
 public class EmployeeController {
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int BULK_CHUNK_SIZE = 1000;
+    static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    private static final Set<String> PATCHABLE_FIELDS = Set.of("firstName", "lastName", "email");
+    private static final Set<String> SELECTABLE_FIELDS = Set.of("id", "firstName", "lastName", "email", "version");
+    private static final Map<Set<String>, Class<?>> PROJECTIONS = Map.of(
+            Set.of("id", "email"), EmployeeEmail.class,
+            Set.of("id", "firstName", "lastName"), EmployeeName.class);
+    static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    // the representations of an employee, or of the list, depend on the format negotiated and on server.compression
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    // one header line, then one line per employee
+    private static final CsvSchema EXPORT_CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("firstName")
+            .addColumn("lastName")
+            .addColumn("email")
+            .addColumn("version")
+            .setUseHeader(true)
+            .build();
+
     private EmployeeService employeeService;
+    private ObjectMapper objectMapper;
+    // formats the streamed GET /api/employees can write, JSON first as the default
+    private Map<MediaType, ObjectMapper> streamingMappers = new LinkedHashMap<>();
+    // GET /api/employees/export formats, by their format parameter value
+    private Map<String, ExportFormat> exportFormats;
+    // null unless employee.write-behind.enabled=true
+    private EmployeeWriteBehindQueue writeBehindQueue;
 
-    public EmployeeController(EmployeeService employeeService) {
+    public EmployeeController(EmployeeService employeeService, ObjectMapper objectMapper,
+                              ObjectProvider<EmployeeWriteBehindQueue> writeBehindQueue, HttpMessageConverters messageConverters) {
         this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.writeBehindQueue = writeBehindQueue.getIfAvailable();
+        // the CBOR and Smile mappers are the ones Spring MVC negotiates for every other endpoint
+        streamingMappers.put(MediaType.APPLICATION_JSON, objectMapper);
+        for (HttpMessageConverter<?> converter : messageConverters) {
+            if (converter instanceof MappingJackson2CborHttpMessageConverter || converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                AbstractJackson2HttpMessageConverter jacksonConverter = (AbstractJackson2HttpMessageConverter) converter;
+                jacksonConverter.getSupportedMediaTypes()
+                        .forEach(mediaType -> streamingMappers.putIfAbsent(mediaType, jacksonConverter.getObjectMapper()));
+            }
+        }
+        // strict quoting: only values containing separators, quotes or line breaks are quoted, not every long one
+        exportFormats = Map.of(
+                "csv", new ExportFormat(TEXT_CSV, new CsvMapper().writerFor(Employee.class).with(EXPORT_CSV_SCHEMA)
+                        .with(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)),
+                "ndjson", new ExportFormat(MediaType.APPLICATION_NDJSON, objectMapper.writerFor(Employee.class).withRootValueSeparator("\n")));
     }
 
+    // 202 without an id in write-behind mode, the employee is inserted by the background writer
     @PostMapping
+    public ResponseEntity<Employee> createEmployee(@RequestBody Employee employee) {
+        if (writeBehindQueue != null) {
+            // checked now: once queued, a rejected row could no longer be reported
+            if (EmployeeValidation.validate(employee) != null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return writeBehindQueue.enqueueCreate(employee) ? ResponseEntity.accepted().body(employee) : queueFull();
+        }
+        return new ResponseEntity<>(employeeService.saveEmployee(employee), HttpStatus.CREATED);
+    }
+
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
     @ResponseStatus(HttpStatus.CREATED)
-    public Employee createEmployee(@RequestBody Employee employee) {
-        return employeeService.saveEmployee(employee);
+    public List<Employee> createEmployees(@RequestBody List<Employee> employees) {
+        return employeeService.saveEmployees(employees);
     }
 
-    @GetMapping
-    public List<Employee> getAllEmployees() {
-        return employeeService.getAllEmployees();
+    // NDJSON upload, one employee per line: read incrementally and saved chunk by chunk, each chunk in its own
+    // transaction, so the whole file never has to fit in memory
+    @PostMapping(value = "bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Map<String, Long> createEmployeesFromNdjson(InputStream body) throws IOException {
+        long created = 0;
+        try (MappingIterator<Employee> employees = objectMapper.readerFor(Employee.class).readValues(body)) {
+            List<Employee> chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+            while (employees.hasNext()) {
+                chunk.add(employees.next());
+                if (chunk.size() == BULK_CHUNK_SIZE) {
+                    created += employeeService.saveEmployees(chunk).size();
+                    chunk = new ArrayList<>(BULK_CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                created += employeeService.saveEmployees(chunk).size();
+            }
+        }
+        return Map.of("created", created);
     }
 
-    @GetMapping("{id}")
-    public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long employeeId) {
+    // streams the whole table as a JSON (or CBOR, Smile) array, one element at a time, instead of building the list
+    // in memory; If-None-Match is answered from the table's change version, one index lookup instead of the scan
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAllEmployees(WebRequest request, HttpServletResponse response,
+                                                                 @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = streamingMediaType(accept);
+        ObjectMapper mapper = streamingMappers.get(mediaType);
+        // read before the scan: a write during it only makes the next poll download again
+        String etag = etag(employeeService.getEmployeesVersion(), mediaType);
+        response.setHeader(HttpHeaders.VARY, VARY);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            JsonGenerator generator = mapper.createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            employeeService.streamAllEmployees(employee -> {
+                try {
+                    generator.writeObject(employee);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.close();
+        };
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(mediaType)
+                .body(body);
+    }
+
+    // GET /api/employees/export?format=csv|ndjson: the whole table as a file download, for batch consumers. Rows are
+    // written one at a time from the same forward-only cursor as GET /api/employees, memory does not grow with the
+    // table; server.compression gzips it for clients sending Accept-Encoding: gzip
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees(@RequestParam("format") String format, WebRequest request) {
+        ExportFormat exportFormat = exportFormats.get(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        String etag = employeeService.getEmployeesVersion() + "-" + format;
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        StreamingResponseBody body = outputStream -> {
+            long[] rows = {0};
+            try (SequenceWriter writer = exportFormat.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(outputStream)) {
+                employeeService.streamAllEmployees(employee -> {
+                    try {
+                        writer.write(employee);
+                        rows[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            // NDJSON lines are terminated, the writer only separates them
+            if (rows[0] > 0 && exportFormat.mediaType().equals(MediaType.APPLICATION_NDJSON)) {
+                outputStream.write('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("employees." + format).build().toString())
+                .body(body);
+    }
+
+    // one ETag per format: the same version serialized as JSON or CBOR is not the same representation
+    private static String etag(String version, MediaType mediaType) {
+        return version + "-" + mediaType.getSubtype();
+    }
+
+    // most specific acceptable format first; requests accepting none of them never reach the handler
+    private MediaType streamingMediaType(String accept) {
+        if (accept != null) {
+            List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+            MimeTypeUtils.sortBySpecificity(acceptedTypes);
+            for (MediaType acceptedType : acceptedTypes) {
+                for (MediaType mediaType : streamingMappers.keySet()) {
+                    if (acceptedType.isCompatibleWith(mediaType)) {
+                        return mediaType;
+                    }
+                }
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
+    // keyset pagination: GET /api/employees?after={lastSeenId}&limit={n}[&fields=id,email]
+    // with fields, the page is read as the narrowest projection that covers them instead of full entities
+    @GetMapping(params = "limit")
+    public ResponseEntity<List<?>> getEmployeesPage(@RequestParam(name = "after", defaultValue = "0") long afterId,
+                                                    @RequestParam("limit") int limit,
+                                                    @RequestParam(name = "fields", required = false) Set<String> fields) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (fields == null || fields.isEmpty()) {
+            return ResponseEntity.ok(employeeService.getEmployeesAfter(afterId, pageSize));
+        }
+        if (!SELECTABLE_FIELDS.containsAll(fields)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Class<?> projection = PROJECTIONS.entrySet().stream()
+                .filter(candidate -> candidate.getKey().containsAll(fields))
+                .min(Comparator.comparingInt(candidate -> candidate.getKey().size()))
+                .<Class<?>>map(Map.Entry::getValue)
+                .orElse(Employee.class);
+        return ResponseEntity.ok(employeeService.getEmployeesAfter(afterId, pageSize, projection));
+    }
+
+    // GET /api/employees?firstName=..&lastName=..&page=0&size=20
+    @GetMapping(params = {"firstName", "lastName"})
+    public List<Employee> getEmployeesByName(@RequestParam("firstName") String firstName,
+                                             @RequestParam("lastName") String lastName,
+                                             @RequestParam(name = "page", defaultValue = "0") int page,
+                                             @RequestParam(name = "size", defaultValue = "20") int size) {
+        return employeeService.getEmployeesByName(firstName, lastName, Math.max(0, page), Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+    }
+
+    // typeahead: every word of q must prefix a word of the first name, last name or email
+    @GetMapping("search")
+    public List<Employee> searchEmployees(@RequestParam("q") String query,
+                                          @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        return employeeService.searchEmployees(query, Math.max(1, Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    // the ETag is the row version and the format; with If-None-Match only the version is looked up, a match is
+    // a 304 without loading or serializing the employee
+    @GetMapping(value = "{id}", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_CBOR_VALUE, APPLICATION_SMILE_VALUE})
+    public ResponseEntity<Employee> getEmployeeById(@PathVariable("id") long employeeId, WebRequest request, HttpServletResponse response,
+                                                    @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = streamingMediaType(accept);
+        response.setHeader(HttpHeaders.VARY, VARY);
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            Optional<Long> version = employeeService.getEmployeeVersion(employeeId);
+            if (version.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            if (request.checkNotModified(etag(version.get().toString(), mediaType))) {
+                return null;
+            }
+        }
         return employeeService.getEmployeeById(employeeId)
-                .map(ResponseEntity::ok)
+                .map(employee -> ResponseEntity.ok()
+                        .eTag(etag(String.valueOf(employee.getVersion()), mediaType))
+                        .contentType(mediaType)
+                        .body(employee))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // single UPDATE ... WHERE id = ? [AND version = ?], no read before the write; send "version" to guard
+    // against overwriting someone else's change
     @PutMapping("{id}")
     public ResponseEntity<Employee> updateEmployee(@PathVariable("id") long employeeId,@RequestBody Employee employee) {
-        return employeeService.getEmployeeById(employeeId)
-                .map(savedEmployee -> {
-                    savedEmployee.setFirstName(employee.getFirstName());
-                    savedEmployee.setLastName(employee.getLastName());
-                    savedEmployee.setEmail(employee.getEmail());
+        if (employee.getFirstName() == null || employee.getLastName() == null || employee.getEmail() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (writeBehindQueue != null) {
+            if (EmployeeValidation.validate(employee) != null) {
+                return ResponseEntity.badRequest().build();
+            }
+            return writeBehindQueue.enqueueUpdate(employeeId, employee)
+                    ? ResponseEntity.accepted().body(employee.toBuilder().id(employeeId).build())
+                    : queueFull();
+        }
+        Map<String, Object> changes = Map.of(
+                "firstName", employee.getFirstName(),
+                "lastName", employee.getLastName(),
+                "email", employee.getEmail());
+        // answered with the row as persisted, so the client gets the new version even when it sent none
+        return employeeService.patchEmployee(employeeId, changes, employee.getVersion())
+                .map(updatedEmployee -> new ResponseEntity<>(updatedEmployee, HttpStatus.OK))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 
-                    Employee updateEmployee =  employeeService.updateEmployee(savedEmployee);
-                    return new ResponseEntity<>(updateEmployee, HttpStatus.OK);
-                })
-                        .orElseGet(() -> ResponseEntity.notFound().build());
+    // JSON Merge Patch (RFC 7396): only the members present in the body are written, "version" is the expected version
+    @PatchMapping(value = "{id}", consumes = MERGE_PATCH_JSON_VALUE)
+    public ResponseEntity<Void> patchEmployee(@PathVariable("id") long employeeId, @RequestBody Map<String, Object> patch) {
+        Map<String, Object> changes = new HashMap<>(patch);
+        Object version = changes.remove("version");
+        if (version != null && !(version instanceof Number)
+                || changes.isEmpty()
+                || !changes.entrySet().stream().allMatch(change ->
+                        PATCHABLE_FIELDS.contains(change.getKey()) && change.getValue() instanceof String)) {
+            // unknown members, and null (removal) of the mandatory columns, are rejected
+            return ResponseEntity.badRequest().build();
+        }
+        Long expectedVersion = version == null ? null : ((Number) version).longValue();
+        return employeeService.patchEmployee(employeeId, changes, expectedVersion).isPresent()
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
 
     @DeleteMapping("{id}")
-    public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId) {
-        employeeService.deleteEmployee(employeeId);
-        return new ResponseEntity<String>("Employee deleted successfully!.", HttpStatus.OK);
+    public ResponseEntity<Void> deleteEmployee(@PathVariable("id") long employeeId) {
+        return employeeService.deleteEmployee(employeeId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // DELETE /api/employees?ids=1,2,3 removes them all with one statement per chunk of ids; unknown ids are ignored
+    @DeleteMapping(params = "ids")
+    public Map<String, Integer> deleteEmployees(@RequestParam("ids") List<Long> employeeIds) {
+        return Map.of("deleted", employeeService.deleteEmployees(employeeIds));
+    }
+
+    // the write-behind queue is full: the writer is behind, the client should back off
+    private static <T> ResponseEntity<T> queueFull() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+    }
+
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<String> handleDuplicateEmail(DuplicateEmailException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentUpdate(OptimisticLockingFailureException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    // search on the sharded storage
+    @ExceptionHandler(UnsupportedOperationException.class)
+    public ResponseEntity<String> handleUnsupported(UnsupportedOperationException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    private record ExportFormat(MediaType mediaType, ObjectWriter writer) {
     }
 }
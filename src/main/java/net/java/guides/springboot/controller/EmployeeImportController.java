@@ -0,0 +1,95 @@
+package net.java.guides.springboot.controller;
+
+import net.java.guides.springboot.exception.ResourceNotFoundException;
+import net.java.guides.springboot.model.EmployeeImport;
+import net.java.guides.springboot.service.impl.EmployeeImporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// bulk import of a CSV or NDJSON request body through EmployeeImporter. The import is created first, its body is then
+// posted to the returned Location; that request returns once the body is imported, meanwhile GET on the Location
+// reports the progress
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequestMapping("/api/employees/imports")
+public class EmployeeImportController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private EmployeeImporter importer;
+
+    public EmployeeImportController(EmployeeImporter importer) {
+        this.importer = importer;
+    }
+
+    // POST /api/employees/imports?format=csv|ndjson: 201 with the id and its Location, no input yet
+    @PostMapping
+    public ResponseEntity<EmployeeImport> createImport(@RequestParam("format") String format,
+                                                       UriComponentsBuilder uriBuilder) throws IOException {
+        EmployeeImport created = importer.createImport(format);
+        return ResponseEntity.created(uriBuilder.path("/api/employees/imports/{id}").buildAndExpand(created.id()).toUri())
+                .body(created);
+    }
+
+    // the input of a created import; a failed (or cut off) one is resumed by sending the same input again, the rows
+    // up to its last checkpoint are skipped
+    @PostMapping(value = "{id}", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<EmployeeImport> uploadImport(@PathVariable("id") String id,
+                                                       @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                       InputStream body) throws IOException {
+        return report(importer.runImport(id, body, format(contentType)));
+    }
+
+    @GetMapping("{id}")
+    public ResponseEntity<EmployeeImport> getImport(@PathVariable("id") String id) throws IOException {
+        return ResponseEntity.of(importer.getImport(id));
+    }
+
+    // one {"row", "email", "error"} line per rejected row
+    @GetMapping(value = "{id}/errors", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Resource> getImportErrors(@PathVariable("id") String id) {
+        return ResponseEntity.of(importer.getErrorReport(id).map(FileSystemResource::new));
+    }
+
+    private static String format(MediaType contentType) {
+        return contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON) ? "ndjson" : "csv";
+    }
+
+    // a failed import keeps its checkpoint and is resumed at the same id
+    private static ResponseEntity<EmployeeImport> report(EmployeeImport employeeImport) {
+        HttpStatus status = employeeImport.status() == EmployeeImport.Status.COMPLETED ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR;
+        return ResponseEntity.status(status).body(employeeImport);
+    }
+
+    @ExceptionHandler(ResourceNotFoundException.class)
+    public ResponseEntity<String> handleNotFound(ResourceNotFoundException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleWrongFormat(IllegalArgumentException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
+    // resuming an import that is running or already completed
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<String> handleNotResumable(IllegalStateException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+}
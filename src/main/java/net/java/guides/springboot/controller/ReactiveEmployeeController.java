@@ -0,0 +1,98 @@
+package net.java.guides.springboot.controller;
+
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.ReactiveEmployeeService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// Non-blocking version of EmployeeController, served instead of it when the 'reactive' profile is active
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/employees")
+public class ReactiveEmployeeController {
+    private ReactiveEmployeeService employeeService;
+
+    public ReactiveEmployeeController(ReactiveEmployeeService employeeService) {
+        this.employeeService = employeeService;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Employee> createEmployee(@RequestBody Employee employee) {
+        return employeeService.saveEmployee(employee);
+    }
+
+    // JSON array, NDJSON or SSE depending on the Accept header; rows are read as the client consumes them
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Employee> getAllEmployees() {
+        return employeeService.getAllEmployees();
+    }
+
+    @GetMapping(params = "limit", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Employee> getEmployeesPage(@RequestParam(name = "after", defaultValue = "0") long afterId,
+                                           @RequestParam("limit") int limit) {
+        return employeeService.getEmployeesAfter(afterId, Math.max(1, Math.min(limit, EmployeeController.MAX_PAGE_SIZE)));
+    }
+
+    @GetMapping("{id}")
+    public Mono<ResponseEntity<Employee>> getEmployeeById(@PathVariable("id") long employeeId) {
+        return employeeService.getEmployeeById(employeeId)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // send "version" to guard against overwriting someone else's change, the response has the new one
+    @PutMapping("{id}")
+    public Mono<ResponseEntity<Employee>> updateEmployee(@PathVariable("id") long employeeId, @RequestBody Employee employee) {
+        if (employee.getFirstName() == null || employee.getLastName() == null || employee.getEmail() == null) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return employeeService.updateEmployee(employee.toBuilder().id(employeeId).build())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<ResponseEntity<Void>> deleteEmployee(@PathVariable("id") long employeeId) {
+        return employeeService.deleteEmployee(employeeId)
+                .map(deleted -> deleted
+                        ? ResponseEntity.noContent().<Void>build()
+                        : ResponseEntity.notFound().<Void>build());
+    }
+
+    @DeleteMapping(params = "ids")
+    public Mono<Map<String, Long>> deleteEmployees(@RequestParam("ids") List<Long> employeeIds) {
+        return employeeService.deleteEmployees(employeeIds)
+                .map(deleted -> Map.of("deleted", deleted));
+    }
+
+    @ExceptionHandler(DuplicateEmailException.class)
+    public ResponseEntity<String> handleDuplicateEmail(DuplicateEmailException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentUpdate(OptimisticLockingFailureException e) {
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,25 @@
+package net.java.guides.springboot.exception;
+
+import net.java.guides.springboot.model.Employee;
+
+public class DuplicateEmailException extends RuntimeException {
+
+    public DuplicateEmailException(String message) {
+        super(message);
+    }
+
+    public DuplicateEmailException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    // true when the root cause is a violation of the unique index on employees.email; MySQL and H2 both name
+    // the index in their message, and this works the same for JDBC and R2DBC errors
+    public static boolean isEmailConstraintViolation(Throwable e) {
+        Throwable rootCause = e;
+        while (rootCause.getCause() != null && rootCause.getCause() != rootCause) {
+            rootCause = rootCause.getCause();
+        }
+        String message = rootCause.getMessage();
+        return message != null && message.toLowerCase().contains(Employee.EMAIL_UNIQUE_INDEX);
+    }
+}
@@ -1,27 +1,47 @@
 package net.java.guides.springboot.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Setter
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 @Entity
-@Table(name = "employees")
+// second-level cached (SecondLevelCacheConfig); READ_WRITE keeps it consistent with updates from this application
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "employees", indexes = {
+        @Index(name = Employee.EMAIL_UNIQUE_INDEX, columnList = "email", unique = true),
+        // serves the first/last-name finders; last_name first so it also covers lookups by last name alone
+        @Index(name = Employee.NAME_INDEX, columnList = "last_name, first_name")
+})
 public class Employee {
+    public static final String EMAIL_UNIQUE_INDEX = "uk_employees_email";
+    public static final String NAME_INDEX = "idx_employees_last_name_first_name";
+    // ids reserved per sequence call; also relied on by ReactiveEmployeeIdGenerator and EmployeeSequenceInitializer
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    // pooled sequence instead of IDENTITY so Hibernate can batch inserts (emulated with a table on MySQL)
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    @SequenceGenerator(name = "employees_seq", sequenceName = "employees_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
     @Column(name = "first_name", nullable = false)
     private String firstName;
@@ -29,6 +49,12 @@ public class Employee {
     @Column(name = "last_name", nullable = false)
     private String lastName;
 
+    // uniqueness is enforced by uk_employees_email, inserts rely on it instead of looking the email up first
     @Column(nullable = false)
     private String email;
+
+    // optimistic locking: bumped on every update, stale writes are rejected instead of silently overwriting
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
@@ -0,0 +1,72 @@
+package net.java.guides.springboot.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Outbox row of the employee change feed: written in the same transaction as the change, with the employee as it
+ * is after it (as it was before, for a delete). The sequence is assigned once the row is committed, by
+ * {@code EmployeeChangeRelay}; consumers resume from the last sequence they have seen.
+ */
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity
+@Table(name = "employee_changes", indexes = {
+        @Index(name = EmployeeChange.SEQUENCE_UNIQUE_INDEX, columnList = "sequence", unique = true)
+})
+public class EmployeeChange {
+    public static final String SEQUENCE_UNIQUE_INDEX = "uk_employee_changes_sequence";
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    // IDENTITY on purpose: the database numbers rows in insert order, so two changes of one employee (serialized by
+    // its row lock) always get increasing ids, even when written from different instances
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @JsonIgnore
+    private Long id;
+
+    // null until relayed, then gap-free, in the order the relay finds the rows committed
+    private Long sequence;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Type type;
+
+    @Column(name = "employee_id", nullable = false)
+    private Long employeeId;
+
+    @Column(name = "first_name")
+    private String firstName;
+
+    @Column(name = "last_name")
+    private String lastName;
+
+    private String email;
+
+    @Column(name = "employee_version")
+    private Long employeeVersion;
+
+    @Column(name = "changed_at", nullable = false)
+    private Instant changedAt;
+}
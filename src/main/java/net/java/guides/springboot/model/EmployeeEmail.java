@@ -0,0 +1,5 @@
+package net.java.guides.springboot.model;
+
+// read-only projection for ?fields=id,email, selected straight into the record without loading the entity
+public record EmployeeEmail(Long id, String email) {
+}
@@ -0,0 +1,13 @@
+package net.java.guides.springboot.model;
+
+import java.time.Instant;
+
+// progress of one bulk import (EmployeeImporter); rows counts the input rows fully handled, imported or rejected,
+// and is where a resumed import picks up. CREATED until its input is first sent
+public record EmployeeImport(String id, String format, Status status, long rows, long imported, long rejected,
+                             String error, Instant startedAt, Instant updatedAt) {
+
+    public enum Status {
+        CREATED, RUNNING, COMPLETED, FAILED
+    }
+}
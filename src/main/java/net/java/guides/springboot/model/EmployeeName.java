@@ -0,0 +1,5 @@
+package net.java.guides.springboot.model;
+
+// read-only projection for ?fields=id,firstName,lastName, selected straight into the record without loading the entity
+public record EmployeeName(Long id, String firstName, String lastName) {
+}
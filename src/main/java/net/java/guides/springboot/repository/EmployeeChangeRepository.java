@@ -0,0 +1,51 @@
+package net.java.guides.springboot.repository;
+
+import jakarta.persistence.LockModeType;
+import net.java.guides.springboot.model.EmployeeChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface EmployeeChangeRepository extends JpaRepository<EmployeeChange, Long> {
+
+    // outbox write: one INSERT ... SELECT for any number of employees, copying their current row in the same
+    // transaction as the change; returns the number of events written
+    @Modifying
+    @Query("insert into EmployeeChange (type, employeeId, firstName, lastName, email, employeeVersion, changedAt) "
+            + "select :type, e.id, e.firstName, e.lastName, e.email, e.version, :changedAt from Employee e where e.id in :ids")
+    int recordChanges(@Param("type") EmployeeChange.Type type, @Param("ids") Collection<Long> ids,
+                      @Param("changedAt") Instant changedAt);
+
+    // committed events not relayed yet, oldest first; locked so that two relays never number the same rows
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<EmployeeChange> findBySequenceIsNullOrderByIdAsc(Pageable pageable);
+
+    @Query("select max(c.sequence) from EmployeeChange c")
+    Optional<Long> findMaxSequence();
+
+    // behind the collection ETag, moves with every committed write from any instance: the newest row, and the newest
+    // relayed one for a row committed after a newer id; both maxima are read from the end of an index
+    @Query("select concat(str(coalesce(max(c.id), 0)), '-', str(coalesce(max(c.sequence), 0))) from EmployeeChange c")
+    String findLatestChange();
+
+    // false once the retention has purged it
+    boolean existsBySequence(long sequence);
+
+    // catch-up read of a consumer that is behind the in-memory stream, seeks on the sequence index
+    List<EmployeeChange> findBySequenceGreaterThanOrderBySequenceAsc(long sequence, Pageable pageable);
+
+    // retention; the latest event is always kept, the next sequence is numbered from it
+    @Modifying
+    @Query("delete from EmployeeChange c where c.changedAt < :before and c.sequence < :latest")
+    int deleteRelayedBefore(@Param("before") Instant before, @Param("latest") long latest);
+}
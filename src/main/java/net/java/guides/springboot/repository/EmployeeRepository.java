@@ -1,24 +1,58 @@
 package net.java.guides.springboot.repository;
 
+import jakarta.persistence.QueryHint;
 import net.java.guides.springboot.model.Employee;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EmployeeRepository extends JpaRepository<Employee, Long> {
+public interface EmployeeRepository extends JpaRepository<Employee, Long>, EmployeeRepositoryCustom {
 
+    // the email and name lookups go through the query cache, invalidated whenever the employees table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Employee> findByEmail(String email);
 
+    // set-based duplicate check for bulk inserts: which of these emails are already taken
+    @Query("select e.email from Employee e where e.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     // define custom query using JPQL with index params
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2")
     Employee findByJPQL(String firstName, String lastName);
 
 
+    // paginated variants of the name finders, they return every match instead of failing on duplicate names;
+    // all of them are served by the (last_name, first_name) index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Employee> findByLastNameAndFirstNameOrderByIdAsc(String lastName, String firstName, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select e from Employee e where e.firstName = ?1 and e.lastName = ?2 order by e.id")
+    List<Employee> findByJPQL(String firstName, String lastName, Pageable pageable);
+
+    @Query(value = "select * from employees e where e.first_name =?1 and e.last_name=?2 order by e.id", nativeQuery = true)
+    List<Employee> findByNativeSQL(String firstName, String lastName, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select e from Employee e where e.firstName = :firstName and e.lastName = :lastName order by e.id")
+    List<Employee> findByJPQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName, Pageable pageable);
+
+    @Query(value = "select * from employees e where e.first_name = :firstName and e.last_name = :lastName order by e.id", nativeQuery = true)
+    List<Employee> findByNativeSQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName, Pageable pageable);
+
     // define custom query using JPQL with named params
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("select e from Employee e where e.firstName =:firstName  and e.lastName =:lastName")
     Employee findByJPQLNamedParams(@Param("firstName") String firstName,@Param("lastName") String lastName);
 
@@ -27,6 +61,23 @@ public interface EmployeeRepository extends JpaRepository<Employee, Long> {
     Employee findByNativeSQL(String firstName, String lastName);
 
     // define custom query using Native SQL with named params
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     @Query("select e from Employee e where e.firstName =:firstName  and e.lastName =:lastName")
     Employee findByNativeSQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // conditional GET: only the version column, by primary key, no entity is materialized
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    @Query("select e.version from Employee e where e.id = :id")
+    Optional<Long> findVersionById(@Param("id") long id);
+
+    // keyset pagination: next slice of employees after the given id, seeks on the primary key index
+    List<Employee> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // same slice as a projection (EmployeeEmail, EmployeeName, ...): only those columns are selected, no entities
+    <T> List<T> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable, Class<T> type);
+
+    // one DELETE ... WHERE for a whole chunk of ids, evicts the whole Employee cache region
+    @Modifying
+    @Query("delete from Employee e where e.id in :ids")
+    int deleteEmployeesByIdIn(@Param("ids") Collection<Long> ids);
 }
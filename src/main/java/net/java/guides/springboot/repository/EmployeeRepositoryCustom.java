@@ -0,0 +1,31 @@
+package net.java.guides.springboot.repository;
+
+import net.java.guides.springboot.model.Employee;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * Forward-only scan of the whole table in id order, rows are pulled from the driver a fetch size at a time.
+     * The rows are not put into the second-level cache, a full scan would push the hot employees out of the bounded
+     * region. Must be closed.
+     */
+    Stream<Employee> streamAllOrderById();
+
+    /**
+     * Writes only the given attributes (entity attribute name -> new value) and bumps the version, in a single
+     * UPDATE without loading the entity first. When {@code expectedVersion} is not null the row is only updated if it
+     * still has that version. Only this employee's second-level cache entry is evicted.
+     *
+     * @return the updated employee, read back after the UPDATE; empty when it does not exist
+     * @throws org.springframework.dao.OptimisticLockingFailureException when its version has moved on
+     */
+    Optional<Employee> updateFields(long id, Map<String, Object> changes, Long expectedVersion);
+
+    // direct DELETE ... WHERE id = ?, without loading the entity first; evicts only this employee's cache entry and
+    // returns the deleted row count
+    int deleteEmployeeById(long id);
+}
@@ -0,0 +1,135 @@
+package net.java.guides.springboot.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import net.java.guides.springboot.model.Employee;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.stream.Stream;
+
+// Spring Data picks this up as the implementation of EmployeeRepositoryCustom
+class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+    private static final Map<String, String> COLUMNS = Map.of(
+            "firstName", "first_name",
+            "lastName", "last_name",
+            "email", "email");
+    // Hibernate clears the whole Employee cache region after any JPQL, criteria or native UPDATE/DELETE that touches
+    // the employees table; the single-row statements below are synchronized on a space no entity maps to instead,
+    // and only the row written is taken out of the caches (rowWritten)
+    private static final String SINGLE_ROW_SPACE = "employees:single-row";
+
+    private EntityManager entityManager;
+
+    EmployeeRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Stream<Employee> streamAllOrderById() {
+        // the rows are loaded as the stream is consumed, after the query itself has run, so a cache mode hint on the
+        // query would not apply to them; the session's mode is switched for as long as the stream is open instead
+        Session session = entityManager.unwrap(Session.class);
+        CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            return entityManager.createQuery("select e from Employee e order by e.id", Employee.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true)
+                    .getResultStream()
+                    .onClose(() -> session.setCacheMode(cacheMode));
+        } catch (RuntimeException e) {
+            session.setCacheMode(cacheMode);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Employee> updateFields(long id, Map<String, Object> changes, Long expectedVersion) {
+        StringJoiner assignments = new StringJoiner(", ", "update employees set ", ", version = version + 1");
+        changes.keySet().forEach(attribute -> assignments.add(column(attribute) + " = :" + attribute));
+        Query update = singleRowStatement(assignments + " where id = :id"
+                + (expectedVersion == null ? "" : " and version = :version"));
+        changes.forEach(update::setParameter);
+        update.setParameter("id", id);
+        if (expectedVersion != null) {
+            update.setParameter("version", expectedVersion);
+        }
+        if (update.executeUpdate() == 0) {
+            // nothing updated: only worth a second query to tell a stale version from a missing employee
+            if (expectedVersion != null && entityManager.find(Employee.class, id) != null) {
+                throw new ObjectOptimisticLockingFailureException(Employee.class, id);
+            }
+            return Optional.empty();
+        }
+        rowWritten(id);
+        // read back for the new version and the attributes that were not written
+        return Optional.of(entityManager.find(Employee.class, id));
+    }
+
+    @Override
+    public int deleteEmployeeById(long id) {
+        int deleted = singleRowStatement("delete from employees where id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+        if (deleted > 0) {
+            rowWritten(id);
+        }
+        return deleted;
+    }
+
+    private Query singleRowStatement(String sql) {
+        // not flushed automatically, the statement is not synchronized on the employees table
+        entityManager.flush();
+        Query statement = entityManager.createNativeQuery(sql);
+        statement.unwrap(NativeQuery.class).addSynchronizedQuerySpace(SINGLE_ROW_SPACE);
+        return statement;
+    }
+
+    // what Hibernate does for an entity it updates or deletes itself: the cache entry stays locked until the transaction
+    // completes, so no concurrent read caches the old row meanwhile, and cached query results over employees are
+    // invalidated; a copy loaded earlier in this persistence context is dropped, it no longer matches the row
+    private void rowWritten(long id) {
+        entityManager.detach(entityManager.getReference(Employee.class, id));
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor sessionFactory = session.getFactory();
+        EntityPersister persister = sessionFactory.getMappingMetamodel().getEntityDescriptor(Employee.class);
+        String[] spaces = (String[]) persister.getQuerySpaces();
+        boolean queryCache = sessionFactory.getSessionFactoryOptions().isQueryCacheEnabled();
+        if (queryCache) {
+            sessionFactory.getCache().getTimestampsCache().preInvalidate(spaces, session);
+        }
+        EntityDataAccess cacheAccess = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        Object key = cacheAccess == null ? null
+                : cacheAccess.generateCacheKey(id, persister, sessionFactory, session.getTenantIdentifier());
+        SoftLock lock = cacheAccess == null ? null : cacheAccess.lockItem(session, key, null);
+        session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completedSession) -> {
+            if (cacheAccess != null) {
+                cacheAccess.unlockItem(completedSession, key, lock);
+            }
+            if (queryCache) {
+                sessionFactory.getCache().getTimestampsCache().invalidate(spaces, completedSession);
+            }
+        });
+    }
+
+    private static String column(String attribute) {
+        String column = COLUMNS.get(attribute);
+        if (column == null) {
+            throw new IllegalArgumentException("Unknown employee attribute " + attribute);
+        }
+        return column;
+    }
+}
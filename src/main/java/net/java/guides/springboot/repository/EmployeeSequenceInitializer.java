@@ -0,0 +1,75 @@
+package net.java.guides.springboot.repository;
+
+import net.java.guides.springboot.model.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Moves {@code employees_seq} past the ids already in the table, before anything is inserted. On a database that
+ * predates the pooled sequence (ids from IDENTITY), {@code ddl-auto=update} creates the sequence at 1 and the first
+ * inserts would collide with existing rows. Runs once the schema is up to date, and before the web server accepts
+ * requests.
+ * <p>
+ * On MySQL the raise is a single conditional UPDATE of the emulating table, so instances starting together are safe.
+ * Where employees_seq is a real sequence the raise is a read followed by {@code alter sequence ... restart}, which is
+ * not atomic: an instance restarting it can hand out again ids another instance has already taken. Migrate such a
+ * database with a single instance, and only scale out once the sequence is past the existing ids.
+ */
+@Component
+@Profile("!sharded")
+@Lazy(false)
+@DependsOn("entityManagerFactory")
+public class EmployeeSequenceInitializer implements InitializingBean {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeSequenceInitializer.class);
+
+    private JdbcTemplate jdbcTemplate;
+    // MySQL has no sequences, Hibernate emulates employees_seq with a one-row table (next_val)
+    private boolean emulatedWithTable;
+
+    @Autowired
+    public EmployeeSequenceInitializer(DataSource dataSource) {
+        this(dataSource, isMySql(dataSource));
+    }
+
+    EmployeeSequenceInitializer(DataSource dataSource, boolean emulatedWithTable) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.emulatedWithTable = emulatedWithTable;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Long maxId = jdbcTemplate.queryForObject("select max(id) from employees", Long.class);
+        if (maxId == null) {
+            return;
+        }
+        // a sequence value V hands out the block (V - allocation size, V]: the next one must start after maxId
+        long floor = maxId + Employee.ID_ALLOCATION_SIZE;
+        if (emulatedWithTable) {
+            if (jdbcTemplate.update("update employees_seq set next_val = ? where next_val < ?", floor, floor) > 0) {
+                log.info("Moved employees_seq to {}, past the existing ids", floor);
+            }
+            return;
+        }
+        // costs one block of ids at each start; not atomic, see the class comment
+        Long next = jdbcTemplate.queryForObject("select next value for employees_seq", Long.class);
+        if (next < floor) {
+            jdbcTemplate.execute("alter sequence employees_seq restart with " + floor);
+            log.info("Moved employees_seq to {}, past the existing ids", floor);
+        }
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        return Boolean.TRUE.equals(new JdbcTemplate(dataSource).execute((ConnectionCallback<Boolean>) connection ->
+                connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql")));
+    }
+}
@@ -0,0 +1,69 @@
+package net.java.guides.springboot.repository;
+
+import io.r2dbc.spi.ConnectionFactory;
+import net.java.guides.springboot.model.Employee;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Supplier;
+
+/**
+ * Hands out Employee ids from the same {@code employees_seq} sequence Hibernate uses for the blocking stack, with
+ * the same pooled semantics: a sequence value V reserves the block {@code (V - ALLOCATION_SIZE, V]}, so ids handed
+ * out here never collide with the ones Hibernate allocates.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveEmployeeIdGenerator {
+    static final int ALLOCATION_SIZE = Employee.ID_ALLOCATION_SIZE;
+
+    private Supplier<Mono<Long>> nextSequenceValue;
+    private long next;
+    private long hi = -1;
+
+    @Autowired
+    public ReactiveEmployeeIdGenerator(DatabaseClient databaseClient, ConnectionFactory connectionFactory) {
+        this(connectionFactory.getMetadata().getName().toLowerCase().contains("mysql")
+                ? () -> nextMySqlTableSequenceValue(databaseClient)
+                : () -> databaseClient.sql("select next value for employees_seq")
+                        .map(row -> row.get(0, Long.class))
+                        .one());
+    }
+
+    ReactiveEmployeeIdGenerator(Supplier<Mono<Long>> nextSequenceValue) {
+        this.nextSequenceValue = nextSequenceValue;
+    }
+
+    public Mono<Long> nextId() {
+        synchronized (this) {
+            if (next <= hi) {
+                return Mono.just(next++);
+            }
+        }
+        return nextSequenceValue.get().map(this::allocate);
+    }
+
+    private synchronized long allocate(long sequenceValue) {
+        long low = Math.max(1, sequenceValue - ALLOCATION_SIZE + 1);
+        // another caller may have refilled the block concurrently, its leftover ids are simply skipped
+        next = low + 1;
+        hi = sequenceValue;
+        return low;
+    }
+
+    // MySQL has no sequences, Hibernate emulates employees_seq with a one-row table (next_val); bump it atomically
+    // and read the previous value back on the same connection
+    private static Mono<Long> nextMySqlTableSequenceValue(DatabaseClient databaseClient) {
+        return databaseClient.inConnection(connection ->
+                Mono.from(connection.createStatement(
+                                "update employees_seq set next_val = last_insert_id(next_val + " + ALLOCATION_SIZE + ")")
+                                .execute())
+                        .flatMap(result -> Mono.from(result.getRowsUpdated()))
+                        .then(Mono.from(connection.createStatement("select last_insert_id()").execute()))
+                        .flatMap(result -> Mono.from(result.map((row, metadata) -> row.get(0, Long.class))))
+                        .map(value -> value - ALLOCATION_SIZE));
+    }
+}
@@ -0,0 +1,115 @@
+package net.java.guides.springboot.repository;
+
+import io.r2dbc.spi.Readable;
+import net.java.guides.springboot.model.Employee;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking counterpart of {@link EmployeeRepository} on R2DBC.
+ * Written against {@link DatabaseClient} rather than as a Spring Data repository interface: Employee is a JPA
+ * entity, and with both stores on the classpath Spring Data JPA would try to claim a reactive repository for it.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveEmployeeRepository {
+    private static final String SELECT_EMPLOYEE = "select id, first_name, last_name, email, version from employees";
+
+    private DatabaseClient databaseClient;
+
+    public ReactiveEmployeeRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Employee> findById(long id) {
+        return databaseClient.sql(SELECT_EMPLOYEE + " where id = :id")
+                .bind("id", id)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .one();
+    }
+
+    public Mono<Employee> findByEmail(String email) {
+        return databaseClient.sql(SELECT_EMPLOYEE + " where email = :email")
+                .bind("email", email)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .first();
+    }
+
+    // same filter as EmployeeRepository.findByJPQL / findByNativeSQL
+    public Flux<Employee> findByFirstNameAndLastName(String firstName, String lastName) {
+        return databaseClient.sql(SELECT_EMPLOYEE + " where first_name = :firstName and last_name = :lastName")
+                .bind("firstName", firstName)
+                .bind("lastName", lastName)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    // rows are pulled from the driver as the subscriber requests them
+    public Flux<Employee> findAllOrderById() {
+        return databaseClient.sql(SELECT_EMPLOYEE + " order by id")
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Flux<Employee> findByIdGreaterThan(long afterId, int limit) {
+        return databaseClient.sql(SELECT_EMPLOYEE + " where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactiveEmployeeRepository::toEmployee)
+                .all();
+    }
+
+    public Mono<Employee> insert(Employee employee) {
+        return databaseClient.sql("insert into employees (id, first_name, last_name, email, version) values (:id, :firstName, :lastName, :email, 0)")
+                .bind("id", employee.getId())
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail())
+                .fetch()
+                .rowsUpdated()
+                .thenReturn(employee.toBuilder().version(0L).build());
+    }
+
+    // only updates the row if it still has the employee's version, when the employee has one
+    public Mono<Long> update(Employee employee) {
+        DatabaseClient.GenericExecuteSpec update = databaseClient.sql("update employees set first_name = :firstName, last_name = :lastName, email = :email, version = version + 1 where id = :id"
+                        + (employee.getVersion() == null ? "" : " and version = :version"))
+                .bind("id", employee.getId())
+                .bind("firstName", employee.getFirstName())
+                .bind("lastName", employee.getLastName())
+                .bind("email", employee.getEmail());
+        if (employee.getVersion() != null) {
+            update = update.bind("version", employee.getVersion());
+        }
+        return update.fetch().rowsUpdated();
+    }
+
+    public Mono<Long> deleteById(long id) {
+        return databaseClient.sql("delete from employees where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Long> deleteByIdIn(Collection<Long> ids) {
+        return databaseClient.sql("delete from employees where id in (:ids)")
+                .bind("ids", ids)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Employee toEmployee(Readable row) {
+        return Employee.builder()
+                .id(row.get("id", Long.class))
+                .firstName(row.get("first_name", String.class))
+                .lastName(row.get("last_name", String.class))
+                .email(row.get("email", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+}
@@ -0,0 +1,43 @@
+package net.java.guides.springboot.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Globally unique Employee ids for sharded storage, handed out from blocks reserved on the application database.
+ * One UPDATE of the {@code employee_ids} row reserves {@link #ALLOCATION_SIZE} ids, the same pooled scheme as
+ * {@code employees_seq} without relying on database sequences, which MySQL does not have, or on IDENTITY columns,
+ * which would be per shard.
+ */
+final class ShardedEmployeeIdGenerator {
+    static final int ALLOCATION_SIZE = 50;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    // [next, end) is what is left of the current block
+    private long next;
+    private long end;
+
+    ShardedEmployeeIdGenerator(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    synchronized long nextId() {
+        if (next == end) {
+            end = reserveBlock();
+            next = end - ALLOCATION_SIZE;
+        }
+        return next++;
+    }
+
+    // the row stays locked by the UPDATE until commit, so concurrent instances read back their own increment
+    private long reserveBlock() {
+        return transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update("update employee_ids set next_val = next_val + ?", ALLOCATION_SIZE) == 0) {
+                throw new IllegalStateException("employee_ids has no row, see db/sharding/directory.sql");
+            }
+            return jdbcTemplate.queryForObject("select next_val from employee_ids", Long.class);
+        });
+    }
+}
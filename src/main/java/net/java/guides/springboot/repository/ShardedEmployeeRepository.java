@@ -0,0 +1,456 @@
+package net.java.guides.springboot.repository;
+
+import net.java.guides.springboot.model.Employee;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.DataClassRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.RecordComponent;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Employees hash-partitioned over several databases, the storage of the 'sharded' profile (ShardingConfig).
+ * An employee lives on shard {@link #shardOf(long)} of its id; ids come from {@link ShardedEmployeeIdGenerator} and
+ * emails are made unique, and found, through the {@code employee_emails} directory (email -> id), both on the
+ * application database. Directory keys are lower-cased emails, as case-insensitive as the unique index of the
+ * unsharded table; employee rows keep the email as given. Queries that are not by id run on every shard in
+ * parallel, each sorted by id, and are k-way merged ({@link SortedMerge}).
+ * Each write is a local transaction on one database. The directory entry is written before the employee row and
+ * removed again when that fails; an entry left behind by a crash in between is taken over once it is older than
+ * {@link #ORPHAN_GRACE}. Every write to a shard also bumps its {@code employees_version} row in the same transaction,
+ * which serializes the commits of one shard on that row.
+ */
+public class ShardedEmployeeRepository implements AutoCloseable {
+    static final Duration ORPHAN_GRACE = Duration.ofMinutes(1);
+
+    private static final String EMPLOYEE_COLUMNS = "id, first_name, last_name, email, version";
+    private static final String SELECT_EMPLOYEE = "select " + EMPLOYEE_COLUMNS + " from employees";
+    private static final RowMapper<Employee> EMPLOYEE = (row, rowNum) -> Employee.builder()
+            .id(row.getLong("id"))
+            .firstName(row.getString("first_name"))
+            .lastName(row.getString("last_name"))
+            .email(row.getString("email"))
+            .version(row.getLong("version"))
+            .build();
+    private static final Map<String, String> COLUMNS = Map.of("firstName", "first_name", "lastName", "last_name", "email", "email");
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private NamedParameterJdbcTemplate directory;
+    private TransactionTemplate directoryTransactions;
+    private List<Shard> shards = new ArrayList<>();
+    private ShardedEmployeeIdGenerator idGenerator;
+    private ExecutorService queryExecutor;
+
+    public ShardedEmployeeRepository(DataSource directory, List<DataSource> shards, int queryThreads) {
+        this.directory = new NamedParameterJdbcTemplate(directory);
+        this.directoryTransactions = new TransactionTemplate(new DataSourceTransactionManager(directory));
+        for (DataSource shard : shards) {
+            JdbcTemplate streaming = new JdbcTemplate(shard);
+            // with useCursorFetch=true, MySQL then reads the full scans through a server-side cursor
+            streaming.setFetchSize(1000);
+            this.shards.add(new Shard(shard, new NamedParameterJdbcTemplate(shard), streaming,
+                    new TransactionTemplate(new DataSourceTransactionManager(shard))));
+        }
+        this.idGenerator = new ShardedEmployeeIdGenerator(this.directory.getJdbcTemplate(), directoryTransactions);
+        this.queryExecutor = Executors.newFixedThreadPool(queryThreads, task -> {
+            Thread thread = new Thread(task, "employee-shard-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // murmur3 finalizer over the id, so the consecutive ids of one block spread evenly; fixed once data is written
+    public int shardOf(long id) {
+        long hash = id;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shards.size());
+    }
+
+    public Optional<Employee> findById(long id) {
+        return shard(id).jdbcTemplate.query(SELECT_EMPLOYEE + " where id = :id", Map.of("id", id), EMPLOYEE)
+                .stream().findFirst();
+    }
+
+    public Optional<Long> findVersionById(long id) {
+        return shard(id).jdbcTemplate.queryForList("select version from employees where id = :id", Map.of("id", id), Long.class)
+                .stream().findFirst();
+    }
+
+    public boolean existsById(long id) {
+        return findVersionById(id).isPresent();
+    }
+
+    // the version rows of all shards; changes with every committed write, from any instance
+    public String findVersion() {
+        return String.join("-", scatter(shard -> shard.jdbcTemplate.getJdbcTemplate()
+                .queryForObject("select version from employees_version", Long.class).toString()));
+    }
+
+    public Optional<Employee> findByEmail(String email) {
+        String key = emailKey(email);
+        return directory.queryForList("select employee_id from employee_emails where email = :email", Map.of("email", key), Long.class)
+                .stream()
+                .flatMap(id -> findById(id).stream())
+                // an entry may be a reservation whose employee row is not (or no longer) written
+                .filter(employee -> key.equals(emailKey(employee.getEmail())))
+                .findFirst();
+    }
+
+    // which of these emails are held by an existing employee
+    public Set<String> findExistingEmails(Collection<String> emails) {
+        Set<String> existing = new HashSet<>();
+        List<String> emailList = new ArrayList<>(emails.stream().map(ShardedEmployeeRepository::emailKey).collect(Collectors.toCollection(LinkedHashSet::new)));
+        for (int i = 0; i < emailList.size(); i += MAX_IN_LIST_SIZE) {
+            Map<Long, String> emailsById = new LinkedHashMap<>();
+            directory.query("select email, employee_id from employee_emails where email in (:emails)",
+                    Map.of("emails", emailList.subList(i, Math.min(i + MAX_IN_LIST_SIZE, emailList.size()))),
+                    row -> {
+                        emailsById.put(row.getLong("employee_id"), emailKey(row.getString("email")));
+                    });
+            Map<Integer, List<Long>> idsByShard = emailsById.keySet().stream().collect(Collectors.groupingBy(this::shardOf));
+            idsByShard.forEach((shard, ids) -> shards.get(shard).jdbcTemplate.query(
+                    "select id, email from employees where id in (:ids)", Map.of("ids", ids),
+                    row -> {
+                        if (emailKey(row.getString("email")).equals(emailsById.get(row.getLong("id")))) {
+                            existing.add(row.getString("email"));
+                        }
+                    }));
+        }
+        return existing;
+    }
+
+    public List<Employee> findAllOrderById() {
+        return SortedMerge.merge(scatter(shard -> shard.jdbcTemplate.query(SELECT_EMPLOYEE + " order by id", EMPLOYEE)),
+                Comparator.comparing(Employee::getId), 0, Integer.MAX_VALUE);
+    }
+
+    public List<Employee> findByIdGreaterThanOrderByIdAsc(long afterId, int limit) {
+        return findByIdGreaterThanOrderByIdAsc(afterId, limit, Employee.class);
+    }
+
+    // Employee, or a record projection (EmployeeEmail, EmployeeName, ...) of which only the columns are selected
+    public <T> List<T> findByIdGreaterThanOrderByIdAsc(long afterId, int limit, Class<T> type) {
+        RowMapper<T> mapper = mapper(type);
+        RowMapper<Keyed<T>> keyed = (row, rowNum) -> new Keyed<>(row.getLong("id"), mapper.mapRow(row, rowNum));
+        String sql = "select " + columns(type) + " from employees where id > :afterId order by id limit :limit";
+        List<List<Keyed<T>>> slices = scatter(shard -> shard.jdbcTemplate.query(sql,
+                Map.of("afterId", afterId, "limit", limit), keyed));
+        return SortedMerge.merge(slices, Comparator.comparingLong(Keyed<T>::id), 0, limit).stream().map(Keyed::value).toList();
+    }
+
+    // every shard returns its first offset + limit matches, the merge skips the offset; deep pages cost more
+    public List<Employee> findByLastNameAndFirstNameOrderByIdAsc(String lastName, String firstName, long offset, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("lastName", lastName)
+                .addValue("firstName", firstName)
+                .addValue("limit", offset + limit);
+        List<List<Employee>> pages = scatter(shard -> shard.jdbcTemplate.query(SELECT_EMPLOYEE
+                + " where last_name = :lastName and first_name = :firstName order by id limit :limit", parameters, EMPLOYEE));
+        return SortedMerge.merge(pages, Comparator.comparing(Employee::getId), offset, limit);
+    }
+
+    // one cursor per shard, open side by side and merged as they are read, so memory stays flat
+    public void streamAllOrderById(Consumer<Employee> action) {
+        List<Stream<Employee>> streams = new ArrayList<>(shards.size());
+        try {
+            for (Shard shard : shards) {
+                streams.add(shard.streaming.queryForStream(SELECT_EMPLOYEE + " order by id", EMPLOYEE));
+            }
+            List<Iterator<Employee>> iterators = streams.stream().map(Stream::iterator).toList();
+            SortedMerge.merge(iterators, Comparator.comparing(Employee::getId), employee -> {
+                action.accept(employee);
+                return true;
+            });
+        } finally {
+            streams.forEach(Stream::close);
+        }
+    }
+
+    // always under a new id; a taken email fails with DuplicateKeyException
+    public Employee insert(Employee employee) {
+        Employee inserted = employee.toBuilder().id(idGenerator.nextId()).version(0L).build();
+        reserveEmail(inserted.getEmail(), inserted.getId());
+        try {
+            insert(shard(inserted.getId()), List.of(inserted));
+        } catch (RuntimeException e) {
+            releaseEmail(inserted.getEmail(), inserted.getId());
+            throw e;
+        }
+        return inserted;
+    }
+
+    // all or nothing: the emails are reserved in one transaction, then every shard inserts its part in one batch,
+    // and the shards that did are cleaned up again if another one fails
+    public List<Employee> insertAll(List<Employee> employees) {
+        List<Employee> inserted = employees.stream()
+                .map(employee -> employee.toBuilder().id(idGenerator.nextId()).version(0L).build())
+                .toList();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        directoryTransactions.executeWithoutResult(status -> directory.batchUpdate(
+                "insert into employee_emails (email, employee_id, reserved_at) values (:email, :id, :now)",
+                inserted.stream().map(employee -> new MapSqlParameterSource()
+                        .addValue("email", emailKey(employee.getEmail()))
+                        .addValue("id", employee.getId())
+                        .addValue("now", now)).toArray(MapSqlParameterSource[]::new)));
+
+        Map<Integer, List<Employee>> employeesByShard = inserted.stream().collect(Collectors.groupingBy(employee -> shardOf(employee.getId())));
+        List<Integer> written = new ArrayList<>();
+        try {
+            for (Map.Entry<Integer, List<Employee>> entry : employeesByShard.entrySet()) {
+                insert(shards.get(entry.getKey()), entry.getValue());
+                written.add(entry.getKey());
+            }
+        } catch (RuntimeException e) {
+            written.forEach(shard -> deleteByIdIn(shards.get(shard), ids(employeesByShard.get(shard))));
+            deleteEmails(ids(inserted));
+            throw e;
+        }
+        return inserted;
+    }
+
+    /**
+     * Writes only the given attributes and bumps the version in a single UPDATE, guarded by {@code expectedVersion}
+     * when it is not null; returns the number of rows updated. A new email is reserved first and the old one
+     * released once the row is updated; the update also checks the row still has the email read before, a
+     * concurrent email change fails with {@link OptimisticLockingFailureException}.
+     */
+    public int updateFields(long id, Map<String, Object> changes, Long expectedVersion) {
+        Shard shard = shard(id);
+        StringBuilder sql = new StringBuilder("update employees set ");
+        MapSqlParameterSource parameters = new MapSqlParameterSource("id", id);
+        changes.forEach((attribute, value) -> {
+            String column = COLUMNS.get(attribute);
+            if (column == null) {
+                throw new IllegalArgumentException("Unknown employee attribute " + attribute);
+            }
+            sql.append(column).append(" = :").append(attribute).append(", ");
+            parameters.addValue(attribute, value);
+        });
+        sql.append("version = version + 1 where id = :id");
+        if (expectedVersion != null) {
+            sql.append(" and version = :version");
+            parameters.addValue("version", expectedVersion);
+        }
+
+        String newEmail = (String) changes.get("email");
+        String oldEmail = null;
+        if (newEmail != null) {
+            List<String> current = shard.jdbcTemplate.queryForList("select email from employees where id = :id", Map.of("id", id), String.class);
+            if (current.isEmpty()) {
+                return 0;
+            }
+            oldEmail = current.get(0);
+            sql.append(" and email = :oldEmail");
+            parameters.addValue("oldEmail", oldEmail);
+            if (emailKey(newEmail).equals(emailKey(oldEmail))) {
+                // a change of case only, the directory entry stays as it is
+                newEmail = null;
+            } else {
+                reserveEmail(newEmail, id);
+            }
+        }
+
+        int updated;
+        try {
+            updated = shard.transactions.execute(status -> bumpVersion(shard, shard.jdbcTemplate.update(sql.toString(), parameters)));
+        } catch (RuntimeException e) {
+            if (newEmail != null) {
+                releaseEmail(newEmail, id);
+            }
+            throw e;
+        }
+        if (newEmail != null) {
+            releaseEmail(updated > 0 ? oldEmail : newEmail, id);
+            if (updated == 0 && expectedVersion == null && existsById(id)) {
+                throw new OptimisticLockingFailureException("Email of employee " + id + " was changed concurrently");
+            }
+        }
+        return updated;
+    }
+
+    public int deleteById(long id) {
+        Shard shard = shard(id);
+        int deleted = shard.transactions.execute(status -> bumpVersion(shard,
+                shard.jdbcTemplate.update("delete from employees where id = :id", Map.of("id", id))));
+        if (deleted > 0) {
+            deleteEmails(List.of(id));
+        }
+        return deleted;
+    }
+
+    public int deleteByIdIn(Collection<Long> ids) {
+        int deleted = 0;
+        for (Map.Entry<Integer, List<Long>> entry : ids.stream().distinct().collect(Collectors.groupingBy(this::shardOf)).entrySet()) {
+            deleted += deleteByIdIn(shards.get(entry.getKey()), entry.getValue());
+        }
+        deleteEmails(ids);
+        return deleted;
+    }
+
+    @Override
+    public void close() throws Exception {
+        queryExecutor.shutdownNow();
+        for (Shard shard : shards) {
+            if (shard.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private Shard shard(long id) {
+        return shards.get(shardOf(id));
+    }
+
+    // runs the query on every shard at once, results in shard order
+    private <T> List<T> scatter(Function<Shard, T> query) {
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), queryExecutor))
+                .toList();
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        return results;
+    }
+
+    private void insert(Shard shard, List<Employee> employees) {
+        shard.transactions.executeWithoutResult(status -> {
+            shard.jdbcTemplate.batchUpdate(
+                    "insert into employees (id, first_name, last_name, email, version) values (:id, :firstName, :lastName, :email, 0)",
+                    employees.stream().map(employee -> new MapSqlParameterSource()
+                            .addValue("id", employee.getId())
+                            .addValue("firstName", employee.getFirstName())
+                            .addValue("lastName", employee.getLastName())
+                            .addValue("email", employee.getEmail())).toArray(MapSqlParameterSource[]::new));
+            bumpVersion(shard, employees.size());
+        });
+    }
+
+    private int deleteByIdIn(Shard shard, List<Long> ids) {
+        return shard.transactions.execute(status -> {
+            int deleted = 0;
+            for (int i = 0; i < ids.size(); i += MAX_IN_LIST_SIZE) {
+                deleted += shard.jdbcTemplate.update("delete from employees where id in (:ids)",
+                        Map.of("ids", ids.subList(i, Math.min(i + MAX_IN_LIST_SIZE, ids.size()))));
+            }
+            return bumpVersion(shard, deleted);
+        });
+    }
+
+    // inside the write's transaction, only when it changed rows; returns that number
+    private static int bumpVersion(Shard shard, int rows) {
+        if (rows > 0) {
+            shard.jdbcTemplate.getJdbcTemplate().update("update employees_version set version = version + 1");
+        }
+        return rows;
+    }
+
+    private void reserveEmail(String email, long id) {
+        String key = emailKey(email);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("email", key)
+                .addValue("id", id)
+                .addValue("now", now)
+                .addValue("orphanedBefore", new Timestamp(now.getTime() - ORPHAN_GRACE.toMillis()));
+        try {
+            directory.update("insert into employee_emails (email, employee_id, reserved_at) values (:email, :id, :now)", parameters);
+        } catch (DuplicateKeyException e) {
+            List<Long> holder = directory.queryForList("select employee_id from employee_emails where email = :email", parameters, Long.class);
+            boolean orphaned = !holder.isEmpty() && findById(holder.get(0)).filter(employee -> key.equals(emailKey(employee.getEmail()))).isEmpty();
+            if (!orphaned || directory.update("update employee_emails set employee_id = :id, reserved_at = :now "
+                    + "where email = :email and employee_id = :holder and reserved_at < :orphanedBefore",
+                    parameters.addValue("holder", holder.get(0))) == 0) {
+                throw e;
+            }
+        }
+    }
+
+    private void releaseEmail(String email, long id) {
+        directory.update("delete from employee_emails where email = :email and employee_id = :id", Map.of("email", emailKey(email), "id", id));
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    private void deleteEmails(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += MAX_IN_LIST_SIZE) {
+            directory.update("delete from employee_emails where employee_id in (:ids)",
+                    Map.of("ids", idList.subList(i, Math.min(i + MAX_IN_LIST_SIZE, idList.size()))));
+        }
+    }
+
+    private static List<Long> ids(List<Employee> employees) {
+        return employees.stream().map(Employee::getId).toList();
+    }
+
+    private static String columns(Class<?> type) {
+        if (type == Employee.class) {
+            return EMPLOYEE_COLUMNS;
+        }
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Not an employee projection: " + type.getName());
+        }
+        // the id is always selected, the merge orders by it
+        Set<String> columns = new LinkedHashSet<>();
+        columns.add("id");
+        for (RecordComponent component : type.getRecordComponents()) {
+            columns.add(COLUMNS.getOrDefault(component.getName(), component.getName()));
+        }
+        return String.join(", ", columns);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> RowMapper<T> mapper(Class<T> type) {
+        return type == Employee.class ? (RowMapper<T>) EMPLOYEE : new DataClassRowMapper<>(type);
+    }
+
+    private record Shard(DataSource dataSource, NamedParameterJdbcTemplate jdbcTemplate, JdbcTemplate streaming,
+                         TransactionTemplate transactions) {
+    }
+
+    private record Keyed<T>(long id, T value) {
+    }
+}
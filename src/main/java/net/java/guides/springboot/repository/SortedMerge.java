@@ -0,0 +1,58 @@
+package net.java.guides.springboot.repository;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+// k-way merge of sources that are each already sorted: a heap holding the head of every source, O(n log k)
+final class SortedMerge {
+
+    private SortedMerge() {
+    }
+
+    // hands the merged elements to the action until it returns false or all sources are drained
+    static <T> void merge(List<? extends Iterator<? extends T>> sources, Comparator<? super T> order, Predicate<? super T> action) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(1, sources.size()),
+                (left, right) -> order.compare(left.value, right.value));
+        for (Iterator<? extends T> source : sources) {
+            if (source.hasNext()) {
+                heads.add(new Head<>(source.next(), source));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            if (!action.test(head.value)) {
+                return;
+            }
+            if (head.source.hasNext()) {
+                heads.add(new Head<>(head.source.next(), head.source));
+            }
+        }
+    }
+
+    // elements skip..skip+limit of the merged order
+    static <T> List<T> merge(List<? extends List<? extends T>> sources, Comparator<? super T> order, long skip, int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        List<Iterator<? extends T>> iterators = new ArrayList<>(sources.size());
+        sources.forEach(source -> iterators.add(source.iterator()));
+        List<T> merged = new ArrayList<>(Math.min(limit, sources.stream().mapToInt(List::size).sum()));
+        long[] skipped = {0};
+        merge(iterators, order, value -> {
+            if (skipped[0] < skip) {
+                skipped[0]++;
+                return true;
+            }
+            merged.add(value);
+            return merged.size() < limit;
+        });
+        return merged;
+    }
+
+    private record Head<T>(T value, Iterator<? extends T> source) {
+    }
+}
@@ -2,13 +2,35 @@ package net.java.guides.springboot.service;
 
 import net.java.guides.springboot.model.Employee;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
     Employee saveEmployee(Employee employee);
+    List<Employee> saveEmployees(List<Employee> employees);
+    // saveEmployees for a caller that already looked the emails up (getExistingEmails) and left the taken ones out:
+    // no second lookup, a duplicate is still rejected by the unique index
+    List<Employee> insertEmployees(List<Employee> employees);
+    // which of these emails are already taken, in as few queries as possible
+    Set<String> getExistingEmails(Collection<String> emails);
     List<Employee> getAllEmployees();
+    List<Employee> getEmployeesAfter(long afterId, int limit);
+    <T> List<T> getEmployeesAfter(long afterId, int limit, Class<T> type);
+    void streamAllEmployees(Consumer<Employee> action);
+    List<Employee> getEmployeesByName(String firstName, String lastName, int page, int size);
+    List<Employee> searchEmployees(String query, int limit);
     Optional<Employee> getEmployeeById(long id);
+    // version of one employee, for ETags, without loading it
+    Optional<Long> getEmployeeVersion(long id);
+    // changes whenever an employee is written, through any instance, for the collection ETag
+    String getEmployeesVersion();
     Employee updateEmployee(Employee updateEmployee);
-    void deleteEmployee(long id);
+    // the employee as persisted by the update, empty when it does not exist
+    Optional<Employee> patchEmployee(long id, Map<String, Object> changes, Long expectedVersion);
+    boolean deleteEmployee(long id);
+    int deleteEmployees(Collection<Long> ids);
 }
@@ -0,0 +1,17 @@
+package net.java.guides.springboot.service;
+
+import net.java.guides.springboot.model.Employee;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> saveEmployee(Employee employee);
+    Flux<Employee> getAllEmployees();
+    Flux<Employee> getEmployeesAfter(long afterId, int limit);
+    Mono<Employee> getEmployeeById(long id);
+    Mono<Employee> updateEmployee(Employee updateEmployee);
+    Mono<Boolean> deleteEmployee(long id);
+    Mono<Long> deleteEmployees(Collection<Long> ids);
+}
@@ -0,0 +1,215 @@
+package net.java.guides.springboot.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of the storage-backed service ({@link EmployeeServiceImpl} or {@link ShardedEmployeeService}).
+ * Employees are cached by id; writes through this instance refresh or invalidate the entry. Cached instances are
+ * never handed out, callers always get a copy they are free to mutate. Every write bumps a generation counter of the
+ * employee; a read that overlaps a write does not cache what it loaded, which may predate the write.
+ * The cache is local to the instance: a write through another instance is not seen here until the entry expires
+ * ({@code employee.cache.ttl}, 10 minutes by default) or is evicted for size, so reads can be that stale. Versions
+ * for conditional GETs and email uniqueness are therefore always left to the database.
+ */
+@Primary
+@Service
+@ConditionalOnProperty(name = "employee.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingEmployeeService implements EmployeeService {
+    // power of two; employees sharing a stripe share a generation, which only costs the occasional uncached read
+    private static final int GENERATION_STRIPES = 1024;
+
+    private EmployeeService employeeService;
+    private Cache<Long, Employee> employeesById;
+    private AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    // entries are put through the map view, which Caffeine's stats (loads) do not count
+    private LongAdder puts = new LongAdder();
+
+    public CachingEmployeeService(EmployeeService employeeService,
+                                  @Value("${employee.cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${employee.cache.ttl:10m}") Duration ttl) {
+        this.employeeService = employeeService;
+        this.employeesById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Employee saveEmployee(Employee employee) {
+        Employee savedEmployee = employeeService.saveEmployee(employee);
+        put(savedEmployee);
+        return savedEmployee;
+    }
+
+    @Override
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        // bulk imports are not cached, they would only push out the hot entries
+        return employeeService.saveEmployees(employees);
+    }
+
+    @Override
+    public List<Employee> insertEmployees(List<Employee> employees) {
+        return employeeService.insertEmployees(employees);
+    }
+
+    @Override
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        return employeeService.getExistingEmails(emails);
+    }
+
+    @Override
+    public List<Employee> getAllEmployees() {
+        return employeeService.getAllEmployees();
+    }
+
+    @Override
+    public List<Employee> getEmployeesAfter(long afterId, int limit) {
+        return employeeService.getEmployeesAfter(afterId, limit);
+    }
+
+    @Override
+    public <T> List<T> getEmployeesAfter(long afterId, int limit, Class<T> type) {
+        return employeeService.getEmployeesAfter(afterId, limit, type);
+    }
+
+    @Override
+    public void streamAllEmployees(Consumer<Employee> action) {
+        employeeService.streamAllEmployees(action);
+    }
+
+    @Override
+    public List<Employee> searchEmployees(String query, int limit) {
+        return employeeService.searchEmployees(query, limit);
+    }
+
+    @Override
+    public List<Employee> getEmployeesByName(String firstName, String lastName, int page, int size) {
+        return employeeService.getEmployeesByName(firstName, lastName, page, size);
+    }
+
+    @Override
+    public Optional<Employee> getEmployeeById(long id) {
+        Employee cachedEmployee = employeesById.getIfPresent(id);
+        if (cachedEmployee != null) {
+            return Optional.of(cachedEmployee.toBuilder().build());
+        }
+        long generation = generations.get(stripe(id));
+        Optional<Employee> employee = employeeService.getEmployeeById(id);
+        employee.ifPresent(loadedEmployee -> cache(loadedEmployee, generation));
+        return employee;
+    }
+
+    @Override
+    public Optional<Long> getEmployeeVersion(long id) {
+        // a primary key lookup of one column; the cached entry may predate a write through another instance
+        return employeeService.getEmployeeVersion(id);
+    }
+
+    @Override
+    public String getEmployeesVersion() {
+        return employeeService.getEmployeesVersion();
+    }
+
+    @Override
+    public Employee updateEmployee(Employee updateEmployee) {
+        try {
+            Employee updatedEmployee = employeeService.updateEmployee(updateEmployee);
+            put(updatedEmployee);
+            return updatedEmployee;
+        } catch (RuntimeException e) {
+            // the row may or may not have changed, let the next read go to the database
+            evict(updateEmployee.getId());
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Employee> patchEmployee(long id, Map<String, Object> changes, Long expectedVersion) {
+        try {
+            return employeeService.patchEmployee(id, changes, expectedVersion);
+        } finally {
+            evict(id);
+        }
+    }
+
+    @Override
+    public boolean deleteEmployee(long id) {
+        try {
+            return employeeService.deleteEmployee(id);
+        } finally {
+            evict(id);
+        }
+    }
+
+    @Override
+    public int deleteEmployees(Collection<Long> ids) {
+        try {
+            return employeeService.deleteEmployees(ids);
+        } finally {
+            ids.forEach(this::evict);
+        }
+    }
+
+    public CacheStats stats() {
+        return employeesById.stats();
+    }
+
+    public long puts() {
+        return puts.sum();
+    }
+
+    public long size() {
+        return employeesById.estimatedSize();
+    }
+
+    private void put(Employee employee) {
+        if (employee == null || employee.getId() == null) {
+            return;
+        }
+        cache(employee, generations.incrementAndGet(stripe(employee.getId())));
+    }
+
+    // unless the employee was written since the given generation was read; checked under the entry's lock, which
+    // evict also takes to remove the entry, after bumping the generation
+    private void cache(Employee employee, long generation) {
+        Employee copy = employee.toBuilder().build();
+        employeesById.asMap().compute(copy.getId(), (id, previous) -> {
+            if (generations.get(stripe(id)) != generation) {
+                return previous;
+            }
+            puts.increment();
+            return copy;
+        });
+    }
+
+    private void evict(Long id) {
+        if (id == null) {
+            return;
+        }
+        generations.incrementAndGet(stripe(id));
+        employeesById.asMap().remove(id);
+    }
+
+    private static int stripe(long id) {
+        return Long.hashCode(id) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,151 @@
+package net.java.guides.springboot.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.repository.EmployeeChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background relay of the employee outbox ({@link EmployeeChange} rows written by {@link EmployeeServiceImpl}).
+ * Committed rows get the next sequence numbers in one short transaction, a batch at a time, and are then published
+ * to the {@link EmployeeChangeStream}. Woken up after each committed write, and every poll-interval to pick up rows
+ * relayed by other instances. Relayed rows older than the retention are deleted.
+ */
+@Component
+@Profile("!sharded")
+public class EmployeeChangeRelay {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeRelay.class);
+    private static final Duration PURGE_INTERVAL = Duration.ofHours(1);
+
+    private EmployeeChangeRepository changeRepository;
+    private EmployeeChangeStream changeStream;
+    private TransactionTemplate transactions;
+    private int batchSize;
+    private Duration pollInterval;
+    private Duration retention;
+    private Semaphore signal = new Semaphore(0);
+    private Instant lastPurge = Instant.now();
+    private volatile boolean running;
+    private Thread relay;
+
+    public EmployeeChangeRelay(EmployeeChangeRepository changeRepository, EmployeeChangeStream changeStream,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${employee.changes.batch-size:500}") int batchSize,
+                               @Value("${employee.changes.poll-interval:1s}") Duration pollInterval,
+                               @Value("${employee.changes.retention:7d}") Duration retention) {
+        this.changeRepository = changeRepository;
+        this.changeStream = changeStream;
+        this.transactions = new TransactionTemplate(transactionManager);
+        // no gap locks on MySQL: writers keep inserting outbox rows while a batch is numbered
+        this.transactions.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.retention = retention;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        changeStream.start(transactions.execute(status -> changeRepository.findMaxSequence()).orElse(0L));
+        running = true;
+        relay = new Thread(this::run, "employee-change-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (relay != null) {
+            relay.interrupt();
+            relay.join();
+        }
+    }
+
+    // a write has committed, relay it now instead of on the next poll
+    public void wakeUp() {
+        signal.release();
+    }
+
+    /**
+     * Numbers and publishes the committed changes not relayed yet, and publishes those relayed by other instances.
+     * Returns the number of changes published. Called by the background relay.
+     */
+    public int relay() {
+        int published = 0;
+        while (true) {
+            List<EmployeeChange> assigned = transactions.execute(status -> {
+                List<EmployeeChange> pending = changeRepository.findBySequenceIsNullOrderByIdAsc(PageRequest.ofSize(batchSize));
+                long sequence = pending.isEmpty() ? 0 : changeRepository.findMaxSequence().orElse(0L);
+                for (EmployeeChange change : pending) {
+                    change.setSequence(++sequence);
+                }
+                return pending;
+            });
+            List<EmployeeChange> changes = assigned;
+            if (assigned.isEmpty() || assigned.get(0).getSequence() != changeStream.lastSequence() + 1) {
+                // others have relayed in between, read everything back in order
+                changes = transactions.execute(status -> changeRepository.findBySequenceGreaterThanOrderBySequenceAsc(
+                        changeStream.lastSequence(), PageRequest.ofSize(batchSize)));
+            }
+            if (changes.isEmpty()) {
+                return published;
+            }
+            changeStream.publish(changes);
+            published += changes.size();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (signal.tryAcquire(pollInterval.toMillis(), TimeUnit.MILLISECONDS)) {
+                    signal.drainPermits();
+                }
+                relay();
+                if (Instant.now().isAfter(lastPurge.plus(PURGE_INTERVAL))) {
+                    purge();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Employee change relay failed, retrying", e);
+                try {
+                    // the database is unavailable, do not spin on it
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void purge() {
+        lastPurge = Instant.now();
+        long latest = changeStream.lastSequence();
+        Integer deleted = transactions.execute(status -> changeRepository.deleteRelayedBefore(lastPurge.minus(retention), latest));
+        if (deleted > 0) {
+            log.info("Deleted {} employee changes older than {}", deleted, retention);
+        }
+    }
+}
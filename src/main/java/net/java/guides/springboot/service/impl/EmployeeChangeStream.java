@@ -0,0 +1,202 @@
+package net.java.guides.springboot.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.repository.EmployeeChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stream of the employee change feed, fed by {@link EmployeeChangeRelay} in sequence order. The latest
+ * {@code employee.changes.buffer-size} events are kept in a ring buffer; a subscriber further behind is caught up
+ * from the outbox table first. Each subscriber is delivered to on a small shared pool, one batch at a time, reading
+ * from its own position: a slow subscriber only delays itself, and nothing is queued per subscriber.
+ */
+@Component
+@Profile("!sharded")
+public class EmployeeChangeStream {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeChangeStream.class);
+
+    private EmployeeChangeRepository changeRepository;
+    // catch-up reads on the primary: a lagging replica would leave a gap before the ring buffer
+    private TransactionTemplate transactions;
+    private int batchSize;
+    private ExecutorService delivery;
+    private Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    // guarded by this: buffer[sequence % length] holds the events after last - size
+    private EmployeeChange[] buffer;
+    private int size;
+    private long last;
+
+    public EmployeeChangeStream(EmployeeChangeRepository changeRepository, PlatformTransactionManager transactionManager,
+                                @Value("${employee.changes.buffer-size:10000}") int bufferSize,
+                                @Value("${employee.changes.batch-size:500}") int batchSize,
+                                @Value("${employee.changes.delivery-threads:4}") int deliveryThreads) {
+        this.changeRepository = changeRepository;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.buffer = new EmployeeChange[bufferSize];
+        this.batchSize = batchSize;
+        AtomicInteger threads = new AtomicInteger();
+        this.delivery = Executors.newFixedThreadPool(deliveryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "employee-change-delivery-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // the sequence the stream continues from, called once by the relay before it publishes anything
+    synchronized void start(long sequence) {
+        if (size == 0) {
+            last = sequence;
+        }
+    }
+
+    // the next events, sequence last + 1 onwards
+    void publish(List<EmployeeChange> changes) {
+        synchronized (this) {
+            for (EmployeeChange change : changes) {
+                if (change.getSequence() != last + 1) {
+                    throw new IllegalStateException("Employee change " + change.getSequence() + " published after " + last);
+                }
+                buffer[(int) (change.getSequence() % buffer.length)] = change;
+                last = change.getSequence();
+                size = Math.min(size + 1, buffer.length);
+            }
+        }
+        subscriptions.forEach(Subscription::schedule);
+    }
+
+    public synchronized long lastSequence() {
+        return last;
+    }
+
+    // false when events after the given sequence have already been purged by the retention, the consumer must resync
+    public boolean isAvailable(long since) {
+        synchronized (this) {
+            if (since >= last - size) {
+                return true;
+            }
+        }
+        return transactions.execute(status -> changeRepository.existsBySequence(since + 1));
+    }
+
+    /**
+     * Delivers every event after {@code since} to the listener, then each new one as it is published, in order
+     * and in batches, until the subscription is cancelled or the listener fails.
+     */
+    public Subscription subscribe(long since, Listener listener) {
+        Subscription subscription = new Subscription(since, listener);
+        subscriptions.add(subscription);
+        subscription.schedule();
+        return subscription;
+    }
+
+    public int subscribers() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        delivery.shutdownNow();
+    }
+
+    // events after since, at most batchSize; null when some of them have been purged already
+    private List<EmployeeChange> read(long since) {
+        synchronized (this) {
+            if (since >= last) {
+                return List.of();
+            }
+            if (since >= last - size) {
+                List<EmployeeChange> changes = new ArrayList<>((int) Math.min(batchSize, last - since));
+                for (long sequence = since + 1; sequence <= last && changes.size() < batchSize; sequence++) {
+                    changes.add(buffer[(int) (sequence % buffer.length)]);
+                }
+                return changes;
+            }
+        }
+        List<EmployeeChange> changes = transactions.execute(status ->
+                changeRepository.findBySequenceGreaterThanOrderBySequenceAsc(since, PageRequest.ofSize(batchSize)));
+        return changes.isEmpty() || changes.get(0).getSequence() != since + 1 ? null : changes;
+    }
+
+    public interface Listener {
+
+        // called from a delivery thread, never concurrently for one subscription; failing cancels the subscription
+        void onChanges(List<EmployeeChange> changes) throws IOException;
+
+        // the subscriber fell behind the retention, it is unsubscribed
+        void onExpired();
+    }
+
+    public final class Subscription {
+        private Listener listener;
+        private volatile long sent;
+        private volatile boolean cancelled;
+        // a delivery is queued or running, at most one at a time
+        private AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Subscription(long since, Listener listener) {
+            this.sent = since;
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::deliver);
+                } catch (RejectedExecutionException e) {
+                    // shutting down
+                    cancel();
+                }
+            }
+        }
+
+        private void deliver() {
+            try {
+                while (!cancelled) {
+                    List<EmployeeChange> changes = read(sent);
+                    if (changes == null) {
+                        cancel();
+                        listener.onExpired();
+                        return;
+                    }
+                    if (changes.isEmpty()) {
+                        scheduled.set(false);
+                        // unless something was published between the read and the reset, and nobody else took it
+                        if (lastSequence() <= sent || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        continue;
+                    }
+                    listener.onChanges(changes);
+                    sent = changes.get(changes.size() - 1).getSequence();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Employee change subscriber at {} is gone", sent, e);
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.java.guides.springboot.service.impl;
+
+import net.java.guides.springboot.model.EmployeeImport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command line import of one file at startup, through {@link EmployeeImporter}:
+ * {@code --employee.import.file=employees.csv} (or {@code .ndjson}), with {@code --employee.import.resume=<id>} to
+ * continue a failed import of the same file. As a one-off job, add {@code --spring.main.web-application-type=none}.
+ * A failed import fails the startup, the message has the id to resume it with.
+ */
+@Component
+@ConditionalOnProperty("employee.import.file")
+public class EmployeeImportRunner implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImportRunner.class);
+
+    private EmployeeImporter importer;
+    private Path file;
+    private String format;
+    private String resume;
+
+    public EmployeeImportRunner(EmployeeImporter importer,
+                                @Value("${employee.import.file}") Path file,
+                                @Value("${employee.import.format:}") String format,
+                                @Value("${employee.import.resume:}") String resume) {
+        this.importer = importer;
+        this.file = file;
+        // from the file extension unless given
+        this.format = format.isEmpty() ? file.getFileName().toString().replaceAll(".*\\.", "").toLowerCase() : format;
+        this.resume = resume;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        log.info("Importing employees from {} ({})", file, format);
+        EmployeeImport employeeImport;
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+            employeeImport = resume.isEmpty()
+                    ? importer.importEmployees(input, format)
+                    : importer.runImport(resume, input, format);
+        }
+        if (employeeImport.status() != EmployeeImport.Status.COMPLETED) {
+            throw new IllegalStateException("Import " + employeeImport.id() + " of " + file + " failed after row "
+                    + employeeImport.rows() + ": " + employeeImport.error()
+                    + ", resume it with --employee.import.resume=" + employeeImport.id());
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package net.java.guides.springboot.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.exception.ResourceNotFoundException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeImport;
+import net.java.guides.springboot.service.EmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import of employees from CSV (a header line naming the firstName, lastName and email columns, as written by
+ * GET /api/employees/export) or NDJSON, read incrementally so the input never has to fit in memory. Ids and
+ * versions in the input are ignored, every row becomes a new employee. An import is created, and checkpointed, before
+ * its input is read, so its id is known while it runs and after an upload that was cut off.
+ * Rows are parsed and validated chunk by chunk on the caller's thread while the previous chunk is written on a
+ * separate one. Writing a chunk takes one batched lookup of its emails, then batched inserts in one transaction
+ * ({@link EmployeeService#insertEmployees}, which relies on that lookup instead of repeating it); chunks are written
+ * in order, so a duplicate of an earlier row of the same input is found by the lookup as well. Rows that cannot be
+ * imported are rejected one by one, the others still are. After every chunk the progress is checkpointed to
+ * {@code employee.import.directory}, next to an NDJSON report of the rejected rows; a failed import is resumed by
+ * sending the same input again, rows up to the checkpoint are skipped. The rows of a chunk that committed right
+ * before a crash are then rejected as already taken.
+ */
+@Component
+public class EmployeeImporter {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImporter.class);
+    static final Set<String> FORMATS = Set.of("csv", "ndjson");
+    private static final Pattern IMPORT_ID = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private EmployeeService employeeService;
+    private ObjectMapper objectMapper;
+    private ObjectReader csvReader = new CsvMapper().readerForMapOf(String.class).with(CsvSchema.emptySchema().withHeader());
+    private Path directory;
+    private int chunkSize;
+    // imports running in this process; the others are read from their checkpoint
+    private Map<String, EmployeeImport> running = new ConcurrentHashMap<>();
+
+    public EmployeeImporter(EmployeeService employeeService, ObjectMapper objectMapper,
+                            @Value("${employee.import.directory:employee-imports}") Path directory,
+                            @Value("${employee.import.chunk-size:1000}") int chunkSize) {
+        this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+    }
+
+    // no input yet, the caller gets the id to follow the import with before sending it
+    public EmployeeImport createImport(String format) throws IOException {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Unsupported import format " + format + ", expected one of " + FORMATS);
+        }
+        Files.createDirectories(directory);
+        Instant now = Instant.now();
+        EmployeeImport created = new EmployeeImport(UUID.randomUUID().toString(), format, EmployeeImport.Status.CREATED,
+                0, 0, 0, null, now, now);
+        checkpoint(new Checkpoint(created, 0));
+        return created;
+    }
+
+    // creates the import and runs it; returns once the whole input is read, with status COMPLETED or FAILED
+    public EmployeeImport importEmployees(InputStream input, String format) throws IOException {
+        return runImport(createImport(format).id(), input, format);
+    }
+
+    // the input of a created import, or again the input of a failed one, whose rows up to the checkpoint are skipped
+    public EmployeeImport runImport(String id, InputStream input, String format) throws IOException {
+        Checkpoint checkpoint = readCheckpoint(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Import not found with id:" + id));
+        EmployeeImport employeeImport = checkpoint.progress();
+        if (employeeImport.status() == EmployeeImport.Status.COMPLETED || running.containsKey(id)) {
+            throw new IllegalStateException("Import " + id + " is " + (running.containsKey(id) ? "running" : "completed"));
+        }
+        if (!employeeImport.format().equals(format)) {
+            throw new IllegalArgumentException("Import " + id + " was created for " + employeeImport.format() + ", not " + format);
+        }
+        if (employeeImport.status() != EmployeeImport.Status.CREATED) {
+            log.info("Resuming import {} after row {}", id, employeeImport.rows());
+        }
+        return run(new Checkpoint(update(employeeImport, EmployeeImport.Status.RUNNING, employeeImport.rows(),
+                employeeImport.imported(), employeeImport.rejected(), null), checkpoint.errorsLength()), input);
+    }
+
+    public Optional<EmployeeImport> getImport(String id) throws IOException {
+        EmployeeImport employeeImport = running.get(id);
+        return employeeImport != null ? Optional.of(employeeImport) : readCheckpoint(id).map(Checkpoint::progress);
+    }
+
+    // NDJSON, one {"row", "email", "error"} object per rejected row, in row order
+    public Optional<Path> getErrorReport(String id) {
+        return isImportId(id) && Files.exists(errorsPath(id)) ? Optional.of(errorsPath(id)) : Optional.empty();
+    }
+
+    private EmployeeImport run(Checkpoint started, InputStream input) throws IOException {
+        String id = started.progress().id();
+        if (running.putIfAbsent(id, started.progress()) != null) {
+            throw new IllegalStateException("Import " + id + " is running");
+        }
+        try (FileChannel errors = FileChannel.open(errorsPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // drop what a failed run reported past its last checkpoint, those rows are read again
+            errors.truncate(started.errorsLength());
+            errors.position(started.errorsLength());
+            Job job = new Job(started, errors);
+            Throwable failure = null;
+            ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "employee-import-" + id);
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Iterator<Row> rows = rows(input, started.progress().format(), started.progress().rows());
+                Future<?> written = CompletableFuture.completedFuture(null);
+                List<Row> chunk;
+                while (!(chunk = nextChunk(rows, started.progress().rows())).isEmpty()) {
+                    // at most one chunk parsed ahead of the one being written
+                    written.get();
+                    List<Row> rowsToWrite = chunk;
+                    written = writer.submit(() -> {
+                        write(job, rowsToWrite);
+                        return null;
+                    });
+                }
+                written.get();
+            } catch (ExecutionException e) {
+                failure = e.getCause();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = e;
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                // a chunk still being written is checkpointed before the final state
+                writer.shutdown();
+                awaitTermination(writer);
+            }
+
+            EmployeeImport progress = job.checkpoint.progress();
+            EmployeeImport finished = failure == null
+                    ? update(progress, EmployeeImport.Status.COMPLETED, progress.rows(), progress.imported(), progress.rejected(), null)
+                    : update(progress, EmployeeImport.Status.FAILED, progress.rows(), progress.imported(), progress.rejected(), message(failure));
+            checkpoint(new Checkpoint(finished, job.checkpoint.errorsLength()));
+            if (failure == null) {
+                log.info("Import {} completed: {} rows, {} imported, {} rejected", id, finished.rows(), finished.imported(), finished.rejected());
+            } else {
+                log.warn("Import {} failed after row {}, it can be resumed", id, finished.rows(), failure);
+            }
+            return finished;
+        } finally {
+            running.remove(id);
+        }
+    }
+
+    // the next rows after the checkpoint, validated, and without an email already used by another row of the chunk
+    private List<Row> nextChunk(Iterator<Row> rows, long skip) {
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        Map<String, Long> rowsByEmail = new HashMap<>();
+        while (chunk.size() < chunkSize && rows.hasNext()) {
+            Row row = rows.next();
+            if (row.number() <= skip) {
+                continue;
+            }
+            if (row.error() == null) {
+                String error = EmployeeValidation.validate(row.employee());
+                if (error == null) {
+                    Long firstRow = rowsByEmail.putIfAbsent(emailKey(row.employee().getEmail()), row.number());
+                    error = firstRow == null ? null : "email is also used by row " + firstRow;
+                }
+                if (error != null) {
+                    row = new Row(row.number(), row.employee(), error);
+                }
+            }
+            chunk.add(row);
+        }
+        return chunk;
+    }
+
+    // on the writer thread, one chunk at a time
+    private void write(Job job, List<Row> chunk) throws IOException {
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        List<Row> rejected = new ArrayList<>();
+        for (Row row : chunk) {
+            (row.error() == null ? accepted : rejected).add(row);
+        }
+        rejectTaken(accepted, rejected);
+        if (!accepted.isEmpty()) {
+            try {
+                employeeService.insertEmployees(employees(accepted));
+            } catch (DuplicateEmailException e) {
+                // taken by a concurrent insert since the lookup, look again
+                rejectTaken(accepted, rejected);
+                if (!accepted.isEmpty()) {
+                    employeeService.insertEmployees(employees(accepted));
+                }
+            }
+        }
+
+        rejected.sort((left, right) -> Long.compare(left.number(), right.number()));
+        for (Row row : rejected) {
+            ImportError error = new ImportError(row.number(), row.employee() == null ? null : row.employee().getEmail(), row.error());
+            ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(error) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (line.hasRemaining()) {
+                job.errors.write(line);
+            }
+        }
+        EmployeeImport progress = job.checkpoint.progress();
+        EmployeeImport updated = update(progress, EmployeeImport.Status.RUNNING, chunk.get(chunk.size() - 1).number(),
+                progress.imported() + accepted.size(), progress.rejected() + rejected.size(), null);
+        job.checkpoint = new Checkpoint(updated, job.errors.position());
+        checkpoint(job.checkpoint);
+        running.put(updated.id(), updated);
+        if (updated.rows() / PROGRESS_LOG_INTERVAL > progress.rows() / PROGRESS_LOG_INTERVAL) {
+            log.info("Import {}: {} rows, {} imported, {} rejected", updated.id(), updated.rows(), updated.imported(), updated.rejected());
+        }
+    }
+
+    // one batched lookup; compared case-insensitively, like the unique index on MySQL
+    private void rejectTaken(List<Row> accepted, List<Row> rejected) {
+        if (accepted.isEmpty()) {
+            return;
+        }
+        Set<String> taken = employeeService.getExistingEmails(accepted.stream().map(row -> row.employee().getEmail()).toList())
+                .stream()
+                .map(EmployeeImporter::emailKey)
+                .collect(Collectors.toSet());
+        if (taken.isEmpty()) {
+            return;
+        }
+        accepted.removeIf(row -> {
+            if (taken.contains(emailKey(row.employee().getEmail()))) {
+                rejected.add(new Row(row.number(), row.employee(), "email is already taken"));
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private Iterator<Row> rows(InputStream input, String format, long skip) throws IOException {
+        return "csv".equals(format) ? csvRows(input) : ndjsonRows(input, skip);
+    }
+
+    // rows are numbered from 1 after the header line
+    private Iterator<Row> csvRows(InputStream input) throws IOException {
+        MappingIterator<Map<String, String>> records = csvReader.readValues(input);
+        return new Iterator<>() {
+            private long number;
+
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                number++;
+                try {
+                    Map<String, String> record = records.next();
+                    return new Row(number, Employee.builder()
+                            .firstName(record.get("firstName"))
+                            .lastName(record.get("lastName"))
+                            .email(record.get("email"))
+                            .build(), null);
+                } catch (RuntimeJsonMappingException e) {
+                    return new Row(number, null, "malformed CSV record: " + e.getMessage());
+                }
+            }
+        };
+    }
+
+    // rows are line numbers, blank lines are skipped; lines up to the checkpoint are not parsed
+    private Iterator<Row> ndjsonRows(InputStream input, long skip) {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        ObjectReader employeeReader = objectMapper.readerFor(Employee.class);
+        return new Iterator<>() {
+            private long number;
+            private String line;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (line == null) {
+                        String read = reader.readLine();
+                        if (read == null) {
+                            return false;
+                        }
+                        number++;
+                        if (!read.isBlank()) {
+                            line = read;
+                        }
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String current = line;
+                line = null;
+                if (number <= skip) {
+                    return new Row(number, null, null);
+                }
+                try {
+                    Employee employee = employeeReader.readValue(current);
+                    employee.setId(null);
+                    employee.setVersion(null);
+                    return new Row(number, employee, null);
+                } catch (JsonProcessingException e) {
+                    return new Row(number, null, "malformed JSON: " + e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    // new instances per attempt: a rolled-back insert leaves ids and versions on the ones it persisted, and those
+    // would be merged row by row on the retry instead of inserted in batches
+    private static List<Employee> employees(List<Row> rows) {
+        return rows.stream().map(row -> row.employee().toBuilder().id(null).version(null).build()).toList();
+    }
+
+    private static EmployeeImport update(EmployeeImport employeeImport, EmployeeImport.Status status, long rows, long imported,
+                                         long rejected, String error) {
+        return new EmployeeImport(employeeImport.id(), employeeImport.format(), status, rows, imported, rejected, error,
+                employeeImport.startedAt(), Instant.now());
+    }
+
+    private static String message(Throwable failure) {
+        return failure.getMessage() == null ? failure.getClass().getSimpleName() : failure.getMessage();
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // replaced in one move, a crash leaves either the previous checkpoint or the new one
+    private void checkpoint(Checkpoint checkpoint) throws IOException {
+        Path path = checkpointPath(checkpoint.progress().id());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        objectMapper.writeValue(temporary.toFile(), checkpoint);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Optional<Checkpoint> readCheckpoint(String id) throws IOException {
+        if (!isImportId(id) || !Files.exists(checkpointPath(id))) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(checkpointPath(id).toFile(), Checkpoint.class));
+    }
+
+    // ids end up in file names, anything else is unknown
+    private static boolean isImportId(String id) {
+        return IMPORT_ID.matcher(id).matches();
+    }
+
+    private Path checkpointPath(String id) {
+        return directory.resolve(id + ".json");
+    }
+
+    private Path errorsPath(String id) {
+        return directory.resolve(id + ".errors.ndjson");
+    }
+
+    // employee is null for rows that could not be parsed; error is null for rows not rejected (yet)
+    private record Row(long number, Employee employee, String error) {
+    }
+
+    private static final class Job {
+        private volatile Checkpoint checkpoint;
+        private final FileChannel errors;
+
+        private Job(Checkpoint checkpoint, FileChannel errors) {
+            this.checkpoint = checkpoint;
+            this.errors = errors;
+        }
+    }
+
+    // errorsLength: size of the error report when the progress was checkpointed
+    record Checkpoint(EmployeeImport progress, long errorsLength) {
+    }
+
+    record ImportError(long row, String email, String error) {
+    }
+}
@@ -0,0 +1,40 @@
+package net.java.guides.springboot.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Business counters of the employee services, next to the latency timers:
+ * {@code employee.rejections{reason=duplicate_email|not_found, operation=...}}.
+ */
+@Component
+public class EmployeeMetrics {
+    private MeterRegistry meterRegistry;
+    private ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public EmployeeMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void duplicateEmail(String operation) {
+        increment("duplicate_email", operation);
+    }
+
+    public void notFound(String operation) {
+        increment("not_found", operation);
+    }
+
+    private void increment(String reason, String operation) {
+        // a handful of reason/operation pairs, resolved once instead of on every registry lookup
+        counters.computeIfAbsent(reason + ':' + operation, key -> Counter.builder("employee.rejections")
+                .description("Employee requests rejected by the service layer")
+                .tag("reason", reason)
+                .tag("operation", operation)
+                .register(meterRegistry))
+                .increment();
+    }
+}
@@ -0,0 +1,254 @@
+package net.java.guides.springboot.service.impl;
+
+import jakarta.persistence.EntityManager;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.EmployeeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static net.java.guides.springboot.service.impl.TransactionCallbacks.afterCommit;
+
+/**
+ * In-memory prefix index over first name, last name and email for typeahead search.
+ * Terms are kept in a sorted map, so all terms starting with a prefix are one contiguous sub-map. Built from a
+ * streamed scan once the application is ready, then kept in sync by {@link EmployeeServiceImpl} after each commit.
+ * An employee is only ever replaced by a newer version of it, and a deleted id is remembered while the scan runs and
+ * for {@code employee.search.tombstone-ttl} after the delete, so neither an old row read by the scan nor a late
+ * commit callback wins over a newer write or brings a deleted employee back. Reads are lock-free, writes are
+ * serialized. Disabled with {@code employee.search.enabled=false}.
+ */
+@Component
+public class EmployeeSearchIndex {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // shorter words only narrow down the matches of the longer ones, alone they would match most of the index
+    static final int MIN_PREFIX_LENGTH = 3;
+
+    private EmployeeRepository employeeRepository;
+    private EntityManager entityManager;
+    private boolean enabled;
+    private long tombstoneTtlNanos;
+    private ConcurrentNavigableMap<String, Set<Long>> idsByTerm = new ConcurrentSkipListMap<>();
+    private ConcurrentMap<Long, IndexedEmployee> employeesById = new ConcurrentHashMap<>();
+    // System.nanoTime() of each delete, oldest first, kept while building and pruned after; guarded by this
+    private LinkedHashMap<Long, Long> deletedAt = new LinkedHashMap<>();
+    private boolean building;
+
+    public EmployeeSearchIndex(EmployeeRepository employeeRepository, EntityManager entityManager,
+                               @Value("${employee.search.enabled:true}") boolean enabled,
+                               @Value("${employee.search.tombstone-ttl:1m}") Duration tombstoneTtl) {
+        this.employeeRepository = employeeRepository;
+        this.entityManager = entityManager;
+        this.enabled = enabled;
+        this.tombstoneTtlNanos = tombstoneTtl.toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            building = true;
+        }
+        // the scan may still see rows written, or deleted, by transactions committed after it started
+        try (Stream<Employee> employees = employeeRepository.streamAllOrderById()) {
+            employees.forEach(employee -> {
+                replace(employee.toBuilder().build());
+                entityManager.detach(employee);
+            });
+        } finally {
+            synchronized (this) {
+                building = false;
+                pruneTombstones();
+            }
+        }
+    }
+
+    /**
+     * Employees matching every word of the query as a prefix of one of their terms, in term order.
+     * Queries without a word of {@link #MIN_PREFIX_LENGTH} letters find nothing. Candidates are the smallest id set
+     * of the long enough words, the other words are checked per candidate.
+     */
+    public List<Employee> search(String query, int limit) {
+        List<String> prefixes = tokens(query).stream()
+                .distinct()
+                .sorted(Comparator.comparingInt(String::length).reversed())
+                .toList();
+        List<Employee> employees = new ArrayList<>(Math.min(limit, 64));
+        if (prefixes.isEmpty() || prefixes.get(0).length() < MIN_PREFIX_LENGTH) {
+            return employees;
+        }
+        Set<Long> seen = new HashSet<>();
+        for (Iterator<Long> ids = candidates(prefixes); ids.hasNext(); ) {
+            Long id = ids.next();
+            IndexedEmployee indexed = employeesById.get(id);
+            if (indexed != null && seen.add(id) && indexed.matchesAll(prefixes)) {
+                employees.add(indexed.employee().toBuilder().build());
+                if (employees.size() == limit) {
+                    return employees;
+                }
+            }
+        }
+        return employees;
+    }
+
+    // one long enough word is walked lazily up to the limit; of several, the set of each is collected, longest word
+    // first, and given up as soon as it outgrows the smallest one so far
+    private Iterator<Long> candidates(List<String> prefixes) {
+        List<String> selective = prefixes.stream().filter(prefix -> prefix.length() >= MIN_PREFIX_LENGTH).toList();
+        if (selective.size() == 1) {
+            return idsWithPrefix(selective.get(0)).stream().flatMap(Set::stream).iterator();
+        }
+        Set<Long> smallest = null;
+        for (String prefix : selective) {
+            Set<Long> ids = new LinkedHashSet<>();
+            for (Set<Long> termIds : idsWithPrefix(prefix)) {
+                ids.addAll(termIds);
+                if (smallest != null && ids.size() >= smallest.size()) {
+                    break;
+                }
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+            if (smallest.isEmpty()) {
+                break;
+            }
+        }
+        return smallest.iterator();
+    }
+
+    private Collection<Set<Long>> idsWithPrefix(String prefix) {
+        return idsByTerm.subMap(prefix, prefix + Character.MAX_VALUE).values();
+    }
+
+    public void put(Employee employee) {
+        if (enabled) {
+            Employee copy = employee.toBuilder().build();
+            afterCommit(() -> replace(copy));
+        }
+    }
+
+    public void remove(long id) {
+        if (enabled) {
+            afterCommit(() -> delete(id));
+        }
+    }
+
+    int size() {
+        return employeesById.size();
+    }
+
+    private synchronized void replace(Employee employee) {
+        pruneTombstones();
+        IndexedEmployee previous = employeesById.get(employee.getId());
+        if (deletedAt.containsKey(employee.getId()) || previous != null && isNewer(previous.employee(), employee)) {
+            // the callback of an older commit, run after the one of a newer commit or of the delete
+            return;
+        }
+        IndexedEmployee indexed = new IndexedEmployee(employee, terms(employee));
+        employeesById.put(employee.getId(), indexed);
+        if (previous != null) {
+            unindex(previous);
+        }
+        for (String term : indexed.terms()) {
+            idsByTerm.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(employee.getId());
+        }
+    }
+
+    private synchronized void delete(long id) {
+        pruneTombstones();
+        // re-inserted, so the map stays in delete order
+        deletedAt.remove(id);
+        deletedAt.put(id, System.nanoTime());
+        IndexedEmployee previous = employeesById.remove(id);
+        if (previous != null) {
+            unindex(previous);
+        }
+    }
+
+    private void pruneTombstones() {
+        if (building) {
+            return;
+        }
+        long now = System.nanoTime();
+        Iterator<Long> times = deletedAt.values().iterator();
+        while (times.hasNext() && now - times.next() >= tombstoneTtlNanos) {
+            times.remove();
+        }
+    }
+
+    private void unindex(IndexedEmployee indexed) {
+        Long id = indexed.employee().getId();
+        for (String term : indexed.terms()) {
+            idsByTerm.computeIfPresent(term, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static boolean isNewer(Employee employee, Employee other) {
+        return employee.getVersion() != null && other.getVersion() != null && employee.getVersion() > other.getVersion();
+    }
+
+    // every word of the names and the email, "awa.ndiaye@gmail.com" is indexed as awa, ndiaye, gmail and com
+    private static String[] terms(Employee employee) {
+        Set<String> terms = new HashSet<>();
+        terms.addAll(tokens(employee.getFirstName()));
+        terms.addAll(tokens(employee.getLastName()));
+        terms.addAll(tokens(employee.getEmail()));
+        return terms.toArray(String[]::new);
+    }
+
+    private static List<String> tokens(String value) {
+        if (value == null) {
+            return List.of();
+        }
+        return Stream.of(TOKEN_SEPARATOR.split(value.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    // terms are kept next to the employee so candidates are checked, and old terms removed, without re-tokenizing
+    private record IndexedEmployee(Employee employee, String[] terms) {
+
+        boolean matchesAll(List<String> prefixes) {
+            for (String prefix : prefixes) {
+                boolean matched = false;
+                for (String term : terms) {
+                    if (term.startsWith(prefix)) {
+                        matched = true;
+                        break;
+                    }
+                }
+                if (!matched) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,50 +1,282 @@
 package net.java.guides.springboot.service.impl;
 
-import net.java.guides.springboot.exception.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import net.java.guides.springboot.config.ReadYourWrites;
+import net.java.guides.springboot.exception.DuplicateEmailException;
 import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.repository.EmployeeChangeRepository;
 import net.java.guides.springboot.repository.EmployeeRepository;
 import net.java.guides.springboot.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static net.java.guides.springboot.service.impl.TransactionCallbacks.afterCommit;
 
 @Service
+@Profile("!sharded")
+@Timed(value = "employee.service", description = "Employee service method latency")
 public class EmployeeServiceImpl implements EmployeeService {
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
     private EmployeeRepository employeeRepository;
+    private EmployeeChangeRepository changeRepository;
+    private EmployeeChangeRelay changeRelay;
+    private EntityManager entityManager;
+    private EmployeeSearchIndex searchIndex;
+    private EmployeeMetrics metrics;
+    private int batchSize = 50;
 
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository) {
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EmployeeChangeRepository changeRepository,
+                               EmployeeChangeRelay changeRelay, EntityManager entityManager, EmployeeSearchIndex searchIndex,
+                               EmployeeMetrics metrics) {
         this.employeeRepository = employeeRepository;
+        this.changeRepository = changeRepository;
+        this.changeRelay = changeRelay;
+        this.entityManager = entityManager;
+        this.searchIndex = searchIndex;
+        this.metrics = metrics;
+    }
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
     }
 
     @Override
+    @Transactional
     public Employee saveEmployee(Employee employee) {
+        // single INSERT, flushed right away so a duplicate email surfaces here as a constraint violation
+        try {
+            Employee savedEmployee = employeeRepository.saveAndFlush(employee);
+            recordChanges(EmployeeChange.Type.CREATED, List.of(savedEmployee.getId()));
+            searchIndex.put(savedEmployee);
+            changed();
+            return savedEmployee;
+        } catch (DataIntegrityViolationException e) {
+            if (DuplicateEmailException.isEmailConstraintViolation(e)) {
+                metrics.duplicateEmail("save");
+                throw new DuplicateEmailException("Employee already exist with given email:" + employee.getEmail(), e);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        Set<String> emails = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        for (Employee employee : employees) {
+            if (!emails.add(employee.getEmail())) {
+                duplicates.add(employee.getEmail());
+            }
+        }
+        duplicates.addAll(getExistingEmails(emails));
+        if (!duplicates.isEmpty()) {
+            metrics.duplicateEmail("save_all");
+            throw new DuplicateEmailException("Employee already exist with given email:" + String.join(",", duplicates));
+        }
+        // the up-front check reports every duplicate at once, the unique index still catches concurrent inserts
+        return insertEmployees(employees);
+    }
+
+    @Override
+    @Transactional
+    public List<Employee> insertEmployees(List<Employee> employees) {
+        List<Employee> savedEmployees = new ArrayList<>(employees.size());
+        try {
+            for (int i = 0; i < employees.size(); i += batchSize) {
+                List<Employee> batch = employeeRepository.saveAll(employees.subList(i, Math.min(i + batchSize, employees.size())));
+                batch.forEach(searchIndex::put);
+                changed();
+                savedEmployees.addAll(batch);
+                // send the batch now and keep the persistence context small
+                entityManager.flush();
+                recordChanges(EmployeeChange.Type.CREATED, batch.stream().map(Employee::getId).toList());
+                entityManager.clear();
+            }
+        } catch (DataIntegrityViolationException | PersistenceException e) {
+            if (DuplicateEmailException.isEmailConstraintViolation(e)) {
+                metrics.duplicateEmail("save_all");
+                throw new DuplicateEmailException("Employee already exist with one of the given emails", e);
+            }
+            throw e;
+        }
+        return savedEmployees;
+    }
 
-        Optional<Employee> savedEmployee = employeeRepository.findByEmail(employee.getEmail());
-        if(savedEmployee.isPresent())
-        {
-            throw new ResourceNotFoundException("Employee already exist with given email:"+employee.getEmail());
+    @Override
+    @Transactional(readOnly = true)
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        // one IN query per chunk of emails instead of one findByEmail per employee
+        List<String> emailList = new ArrayList<>(emails);
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < emailList.size(); i += MAX_IN_LIST_SIZE) {
+            existing.addAll(employeeRepository.findExistingEmails(
+                    emailList.subList(i, Math.min(i + MAX_IN_LIST_SIZE, emailList.size()))));
         }
-        return employeeRepository.save(employee);
+        return existing;
     }
 
+    // read paths run in read-only transactions: Hibernate then keeps no dirty-checking snapshots and never flushes
     @Override
+    @Transactional(readOnly = true)
     public List<Employee> getAllEmployees() {
         return employeeRepository.findAll();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public List<Employee> getEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public <T> List<T> getEmployeesAfter(long afterId, int limit, Class<T> type) {
+        return employeeRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit), type);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllEmployees(Consumer<Employee> action) {
+        try (Stream<Employee> employees = employeeRepository.streamAllOrderById()) {
+            employees.forEach(employee -> {
+                action.accept(employee);
+                // drop the row from the persistence context so memory stays flat over the whole scan
+                entityManager.detach(employee);
+            });
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Employee> getEmployeesByName(String firstName, String lastName, int page, int size) {
+        return employeeRepository.findByLastNameAndFirstNameOrderByIdAsc(lastName, firstName, PageRequest.of(page, size));
+    }
+
+    @Override
+    public List<Employee> searchEmployees(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Optional<Employee> getEmployeeById(long id) {
-        return employeeRepository.findById(id);
+        Optional<Employee> employee = employeeRepository.findById(id);
+        if (employee.isEmpty()) {
+            metrics.notFound("get");
+        }
+        return employee;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<Long> getEmployeeVersion(long id) {
+        return employeeRepository.findVersionById(id);
+    }
+
+    // from the outbox, which every write transaction adds to; writes that bypass it (the R2DBC stack, plain SQL)
+    // are not seen, like in the change feed
+    @Override
+    @Transactional(readOnly = true)
+    public String getEmployeesVersion() {
+        return changeRepository.findLatestChange();
     }
 
     @Override
+    @Transactional
     public Employee updateEmployee(Employee updateEmployee) {
-        return employeeRepository.save(updateEmployee);
+        // flushed so the change event has the new version
+        Employee updatedEmployee = employeeRepository.saveAndFlush(updateEmployee);
+        recordChanges(EmployeeChange.Type.UPDATED, List.of(updatedEmployee.getId()));
+        searchIndex.put(updatedEmployee);
+        changed();
+        return updatedEmployee;
     }
 
     @Override
-    public void deleteEmployee(long id) {
-        employeeRepository.deleteById(id);
+    @Transactional
+    public Optional<Employee> patchEmployee(long id, Map<String, Object> changes, Long expectedVersion) {
+        Optional<Employee> patchedEmployee;
+        try {
+            patchedEmployee = employeeRepository.updateFields(id, changes, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            if (DuplicateEmailException.isEmailConstraintViolation(e)) {
+                metrics.duplicateEmail("patch");
+                throw new DuplicateEmailException("Employee already exist with given email:" + changes.get("email"), e);
+            }
+            throw e;
+        }
+        if (patchedEmployee.isEmpty()) {
+            metrics.notFound("patch");
+            return patchedEmployee;
+        }
+        recordChanges(EmployeeChange.Type.UPDATED, List.of(id));
+        searchIndex.put(patchedEmployee.get());
+        changed();
+        return patchedEmployee;
+    }
+
+    @Override
+    @Transactional
+    public boolean deleteEmployee(long id) {
+        searchIndex.remove(id);
+        // the event keeps the last state of the employee, so it is written before the row goes
+        recordChanges(EmployeeChange.Type.DELETED, List.of(id));
+        if (employeeRepository.deleteEmployeeById(id) > 0) {
+            changed();
+            return true;
+        }
+        metrics.notFound("delete");
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public int deleteEmployees(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(new HashSet<>(ids));
+        idList.forEach(searchIndex::remove);
+        int deleted = 0;
+        for (int i = 0; i < idList.size(); i += MAX_IN_LIST_SIZE) {
+            List<Long> chunk = idList.subList(i, Math.min(i + MAX_IN_LIST_SIZE, idList.size()));
+            recordChanges(EmployeeChange.Type.DELETED, chunk);
+            deleted += employeeRepository.deleteEmployeesByIdIn(chunk);
+        }
+        if (deleted > 0) {
+            changed();
+        }
+        return deleted;
+    }
+
+    // transactional outbox: the change feed events are written by one INSERT ... SELECT in the same transaction as the
+    // change itself, so the feed never misses a committed write nor shows a rolled back one
+    private void recordChanges(EmployeeChange.Type type, Collection<Long> ids) {
+        if (changeRepository.recordChanges(type, ids, Instant.now()) > 0) {
+            afterCommit(changeRelay::wakeUp);
+        }
+    }
+
+    // the caller's later reads stay on the primary until a replica has caught up (ReplicaRoutingDataSource)
+    private void changed() {
+        afterCommit(ReadYourWrites::written);
     }
 }
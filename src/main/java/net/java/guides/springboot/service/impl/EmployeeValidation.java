@@ -0,0 +1,37 @@
+package net.java.guides.springboot.service.impl;
+
+import net.java.guides.springboot.model.Employee;
+
+import java.util.regex.Pattern;
+
+// the checks a new or replaced employee must pass before it is accepted by a path that writes it later (bulk import,
+// write-behind queue), where a database constraint violation could no longer be reported to the client
+public final class EmployeeValidation {
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+");
+    // column length of the employees table
+    private static final int MAX_LENGTH = 255;
+
+    private EmployeeValidation() {
+    }
+
+    // null when the employee can be saved as it is, otherwise what is wrong with it
+    public static String validate(Employee employee) {
+        if (employee.getFirstName() == null || employee.getFirstName().isBlank()) {
+            return "firstName is required";
+        }
+        if (employee.getLastName() == null || employee.getLastName().isBlank()) {
+            return "lastName is required";
+        }
+        if (employee.getEmail() == null || employee.getEmail().isBlank()) {
+            return "email is required";
+        }
+        if (employee.getFirstName().length() > MAX_LENGTH || employee.getLastName().length() > MAX_LENGTH
+                || employee.getEmail().length() > MAX_LENGTH) {
+            return "values are limited to " + MAX_LENGTH + " characters";
+        }
+        if (!EMAIL.matcher(employee.getEmail()).matches()) {
+            return "email is not valid";
+        }
+        return null;
+    }
+}
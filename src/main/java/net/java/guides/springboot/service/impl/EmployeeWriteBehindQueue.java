@@ -0,0 +1,403 @@
+package net.java.guides.springboot.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in write-behind mode ({@code employee.write-behind.enabled=true}): POST and PUT are acknowledged with 202
+ * once queued, and a single background writer applies them through the {@link EmployeeService} (so caches and the
+ * search index stay in sync). Creates are inserted in JDBC batches, repeated updates of one employee are coalesced
+ * into one. Every accepted write is first appended to a local log with a sequence number; after each batch the
+ * sequence numbers it wrote are appended too, so a restart replays only the writes no batch got through. After a
+ * batch, once the log has doubled since it was last compacted, it is rewritten to the writes not written yet, so it
+ * stays within twice the queued writes under steady load. Only a crash between a batch's commit and its record replays
+ * that batch: a replayed create is then rejected by the email unique index, a replayed update by its version (an
+ * unversioned update is applied again).
+ * Callers validate writes before queueing them ({@link EmployeeValidation}). Writes the database still refuses
+ * (duplicate email, other constraint violation, stale version, unknown id) can no longer be reported to the client,
+ * they are dropped, logged and counted as {@code employee.write-behind.dropped} instead of blocking the queue.
+ */
+@Component
+@ConditionalOnProperty(name = "employee.write-behind.enabled", havingValue = "true")
+public class EmployeeWriteBehindQueue {
+    private static final Logger log = LoggerFactory.getLogger(EmployeeWriteBehindQueue.class);
+
+    private EmployeeService employeeService;
+    private ObjectMapper objectMapper;
+    private MeterRegistry meterRegistry;
+    private BlockingQueue<Entry> queue;
+    private int batchSize;
+    private Duration flushInterval;
+    private boolean fsync;
+    private Path logPath;
+    // replaced when the log is compacted; guarded by this, like the size of the log after the last compaction
+    private FileChannel appendLog;
+    private long compactedSize;
+    private Timer flushTimer;
+    // sequence number of the next accepted write, guarded by this
+    private long nextSeq;
+    // taken from the queue (or replayed from the log) but not written yet
+    private List<Entry> pending = new ArrayList<>();
+    private volatile boolean running;
+    private Thread writer;
+
+    public EmployeeWriteBehindQueue(EmployeeService employeeService, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                                    @Value("${employee.write-behind.capacity:10000}") int capacity,
+                                    @Value("${employee.write-behind.batch-size:${spring.jpa.properties.hibernate.jdbc.batch_size:50}}") int batchSize,
+                                    @Value("${employee.write-behind.flush-interval:200ms}") Duration flushInterval,
+                                    @Value("${employee.write-behind.log:employee-write-behind.log}") Path logPath,
+                                    @Value("${employee.write-behind.fsync:false}") boolean fsync) throws IOException {
+        this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.fsync = fsync;
+        this.logPath = logPath;
+        replay(logPath);
+        this.appendLog = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.compactedSize = appendLog.size();
+        this.flushTimer = Timer.builder("employee.write-behind.flush")
+                .description("Time to write one batch of queued employee writes")
+                .register(meterRegistry);
+        Gauge.builder("employee.write-behind.queue.depth", queue, BlockingQueue::size)
+                .description("Employee writes accepted but not yet written")
+                .register(meterRegistry);
+    }
+
+    // false when the queue is full, the caller should push back instead of waiting
+    public boolean enqueueCreate(Employee employee) {
+        return enqueue(null, employee.toBuilder().id(null).version(null).build());
+    }
+
+    // a full replacement of the names and email, guarded by the employee's version when it is set
+    public boolean enqueueUpdate(long id, Employee employee) {
+        return enqueue(id, employee.toBuilder().id(id).build());
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "employee-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // stop taking new batches, then write what is left; whatever still fails stays in the log for the next start
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        if (writer != null) {
+            writer.interrupt();
+            writer.join();
+        }
+        flush();
+        appendLog.close();
+    }
+
+    /**
+     * Writes everything queued so far, one batch at a time. Returns the number of entries taken from the queue.
+     * Called by the background writer. Rows the database rejects (constraint violations, stale versions) are dropped
+     * one by one; when anything else fails (database down) the entries of the batch not written yet are kept and
+     * retried first on the next call, those already written are not written twice.
+     */
+    public int flush() {
+        int taken = 0;
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            if (!pending.isEmpty()) {
+                batch.addAll(pending);
+                pending.clear();
+            }
+            taken += queue.drainTo(batch, Math.max(0, batchSize - batch.size()));
+            if (batch.isEmpty()) {
+                return taken;
+            }
+            List<Entry> attempted = List.copyOf(batch);
+            try {
+                flushTimer.record(() -> write(batch));
+            } catch (RuntimeException e) {
+                // write removed what it got through from the batch
+                log.error("Could not write {} queued employee writes, retrying", batch.size(), e);
+                pending.addAll(batch);
+                return taken;
+            } finally {
+                if (recordWritten(attempted, batch)) {
+                    compactLog();
+                }
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Entry first = queue.poll(flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    pending.add(first);
+                }
+                if (!pending.isEmpty()) {
+                    flush();
+                }
+                if (!pending.isEmpty()) {
+                    // the database is unavailable, do not spin on it
+                    Thread.sleep(flushInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Employee write-behind writer failed", e);
+            }
+        }
+    }
+
+    // every entry is removed from the batch once it is written or dropped, so a failure part way through leaves
+    // exactly the entries still to write
+    private void write(List<Entry> batch) {
+        List<Entry> creates = new ArrayList<>();
+        Map<Long, Entry> updates = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            if (entry.id() == null) {
+                creates.add(entry);
+            } else {
+                // last write wins, checked against the version it expected itself; the update keeps the place of the first
+                updates.put(entry.id(), entry);
+            }
+        }
+        if (!creates.isEmpty()) {
+            create(creates, batch);
+        }
+        for (Entry update : updates.values()) {
+            update(update);
+            batch.removeIf(entry -> update.id().equals(entry.id()));
+        }
+    }
+
+    private void create(List<Entry> creates, List<Entry> batch) {
+        try {
+            employeeService.saveEmployees(creates.stream().map(EmployeeWriteBehindQueue::newEmployee).toList());
+            batch.removeAll(creates);
+        } catch (DuplicateEmailException | DataIntegrityViolationException e) {
+            // isolate the offending rows, the rest of the batch still goes in
+            for (Entry create : creates) {
+                Employee employee = newEmployee(create);
+                try {
+                    employeeService.saveEmployee(employee);
+                } catch (DuplicateEmailException duplicate) {
+                    drop("duplicate_email", employee, duplicate);
+                } catch (DataIntegrityViolationException invalid) {
+                    drop("invalid", employee, invalid);
+                }
+                batch.remove(create);
+            }
+        }
+    }
+
+    // a fresh instance per attempt: persist gives the one it saves an id and version even when the transaction rolls
+    // back, and a retry with those would be merged row by row instead of inserted in a batch
+    private static Employee newEmployee(Entry create) {
+        return create.employee().toBuilder().id(null).version(null).build();
+    }
+
+    private void update(Entry entry) {
+        Employee employee = entry.employee();
+        Map<String, Object> changes = Map.of(
+                "firstName", employee.getFirstName(),
+                "lastName", employee.getLastName(),
+                "email", employee.getEmail());
+        try {
+            if (employeeService.patchEmployee(entry.id(), changes, employee.getVersion()).isEmpty()) {
+                drop("not_found", employee, null);
+            }
+        } catch (OptimisticLockingFailureException e) {
+            drop("stale_version", employee, e);
+        } catch (DuplicateEmailException e) {
+            drop("duplicate_email", employee, e);
+        } catch (DataIntegrityViolationException e) {
+            drop("invalid", employee, e);
+        }
+    }
+
+    private void drop(String reason, Employee employee, Exception cause) {
+        log.warn("Dropped queued write of employee {} ({}): {}", employee.getId(), employee.getEmail(), reason, cause);
+        Counter.builder("employee.write-behind.dropped")
+                .description("Queued employee writes the database rejected")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    // appended and queued under one lock, so the log is never truncated between the two
+    private synchronized boolean enqueue(Long id, Employee employee) {
+        if (queue.remainingCapacity() == 0) {
+            return false;
+        }
+        Entry entry = new Entry(nextSeq++, id, employee);
+        append(entry);
+        return queue.offer(entry);
+    }
+
+    // the entries no longer in the batch were written or dropped, a replay must not apply them again;
+    // false when there were none, or they could not be recorded
+    private boolean recordWritten(List<Entry> attempted, List<Entry> left) {
+        List<Long> written = attempted.stream()
+                .filter(entry -> !left.contains(entry))
+                .map(Entry::seq)
+                .toList();
+        if (written.isEmpty()) {
+            return false;
+        }
+        try {
+            append(new Written(written));
+            return true;
+        } catch (UncheckedIOException e) {
+            // the batch is replayed on the next start, creates and versioned updates are rejected there
+            log.warn("Could not record {} written employee writes", written.size(), e);
+            return false;
+        }
+    }
+
+    private synchronized void append(Object line) {
+        try {
+            appendLog.write(ByteBuffer.wrap((objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8)));
+            if (fsync) {
+                appendLog.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not append to the employee write-behind log", e);
+        }
+    }
+
+    // rewrites the log to the entries still pending or queued, everything before them is written; under the lock of
+    // enqueue, so no entry is accepted in between. Unless nothing is left, each rewrite is paid for by at least as
+    // many bytes appended since the last one
+    private synchronized void compactLog() {
+        Path compacted = logPath.resolveSibling(logPath.getFileName() + ".compacted");
+        try {
+            if (!(pending.isEmpty() && queue.isEmpty()) && appendLog.size() < 2 * compactedSize) {
+                return;
+            }
+            // left behind by a compaction that failed
+            Files.deleteIfExists(compacted);
+            FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            try {
+                StringBuilder lines = new StringBuilder();
+                for (Entry entry : pending) {
+                    lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+                }
+                for (Entry entry : queue) {
+                    lines.append(objectMapper.writeValueAsString(entry)).append('\n');
+                }
+                channel.write(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+                if (fsync) {
+                    channel.force(false);
+                }
+                Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+            // the channel follows the file it was opened on
+            appendLog.close();
+            appendLog = channel;
+            compactedSize = channel.size();
+        } catch (IOException e) {
+            // the old log is still complete, the next batch tries again
+            log.warn("Could not compact the employee write-behind log", e);
+        }
+    }
+
+    private void replay(Path logPath) throws IOException {
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        Set<Long> written = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(logPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    if (node.has("written")) {
+                        written.addAll(objectMapper.treeToValue(node, Written.class).written());
+                    } else {
+                        entries.add(objectMapper.treeToValue(node, Entry.class));
+                    }
+                } catch (JsonProcessingException e) {
+                    // a torn last line is a write that was never acknowledged, or a batch replayed once more
+                    log.warn("Skipped an unreadable line of {}", logPath, e);
+                }
+            }
+        }
+        for (Entry entry : entries) {
+            nextSeq = Math.max(nextSeq, entry.seq() + 1);
+            if (!written.contains(entry.seq())) {
+                pending.add(entry);
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Replaying {} employee writes from {}", pending.size(), logPath);
+        }
+    }
+
+    // id is null for a create
+    record Entry(long seq, Long id, Employee employee) {
+    }
+
+    // sequence numbers of the entries a batch wrote or dropped
+    record Written(List<Long> written) {
+    }
+}
@@ -0,0 +1,104 @@
+package net.java.guides.springboot.service.impl;
+
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.ReactiveEmployeeIdGenerator;
+import net.java.guides.springboot.repository.ReactiveEmployeeRepository;
+import net.java.guides.springboot.service.ReactiveEmployeeService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+    private static final int MAX_IN_LIST_SIZE = 1000;
+
+    private ReactiveEmployeeRepository employeeRepository;
+    private ReactiveEmployeeIdGenerator idGenerator;
+    private EmployeeMetrics metrics;
+
+    public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepository employeeRepository, ReactiveEmployeeIdGenerator idGenerator,
+                                       EmployeeMetrics metrics) {
+        this.employeeRepository = employeeRepository;
+        this.idGenerator = idGenerator;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Employee> saveEmployee(Employee employee) {
+        // no lookup by email first, the unique index rejects duplicates
+        return idGenerator.nextId()
+                .flatMap(id -> employeeRepository.insert(employee.toBuilder().id(id).build()))
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> duplicateEmail("save", employee, e));
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployees() {
+        return employeeRepository.findAllOrderById();
+    }
+
+    @Override
+    public Flux<Employee> getEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findByIdGreaterThan(afterId, limit);
+    }
+
+    @Override
+    public Mono<Employee> getEmployeeById(long id) {
+        return employeeRepository.findById(id);
+    }
+
+    // the row as updated, empty when the employee does not exist; a version, when given, must still be the current one
+    @Override
+    public Mono<Employee> updateEmployee(Employee updateEmployee) {
+        long id = updateEmployee.getId();
+        return employeeRepository.update(updateEmployee)
+                .onErrorMap(ReactiveEmployeeServiceImpl::isDuplicateEmail, e -> duplicateEmail("update", updateEmployee, e))
+                .flatMap(rowsUpdated -> {
+                    if (rowsUpdated > 0) {
+                        return employeeRepository.findById(id)
+                                .switchIfEmpty(Mono.error(() -> new OptimisticLockingFailureException("Employee " + id + " was deleted concurrently")));
+                    }
+                    // nothing updated: only worth a second query to tell a stale version from a missing employee
+                    Mono<Employee> notFound = Mono.fromRunnable(() -> metrics.notFound("update"));
+                    if (updateEmployee.getVersion() == null) {
+                        return notFound;
+                    }
+                    return employeeRepository.findById(id)
+                            .<Employee>flatMap(employee -> Mono.error(new OptimisticLockingFailureException("Employee " + id
+                                    + " was modified concurrently, expected version " + updateEmployee.getVersion())))
+                            .switchIfEmpty(notFound);
+                });
+    }
+
+    private static boolean isDuplicateEmail(Throwable e) {
+        return e instanceof DataIntegrityViolationException && DuplicateEmailException.isEmailConstraintViolation(e);
+    }
+
+    private DuplicateEmailException duplicateEmail(String operation, Employee employee, Throwable cause) {
+        metrics.duplicateEmail(operation);
+        return new DuplicateEmailException("Employee already exist with given email:" + employee.getEmail(), cause);
+    }
+
+    @Override
+    public Mono<Boolean> deleteEmployee(long id) {
+        return employeeRepository.deleteById(id).map(rowsDeleted -> rowsDeleted > 0);
+    }
+
+    @Override
+    public Mono<Long> deleteEmployees(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Flux.fromIterable(new HashSet<>(ids))
+                .buffer(MAX_IN_LIST_SIZE)
+                .concatMap(employeeRepository::deleteByIdIn)
+                .reduce(0L, Long::sum);
+    }
+}
@@ -0,0 +1,179 @@
+package net.java.guides.springboot.service.impl;
+
+import io.micrometer.core.annotation.Timed;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.ShardedEmployeeRepository;
+import net.java.guides.springboot.service.EmployeeService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * {@link EmployeeService} on hash-sharded storage ('sharded' profile), in place of {@link EmployeeServiceImpl}.
+ * Same behavior towards the controller and {@link CachingEmployeeService}, except for search: the search index is
+ * built from the JPA repository, which does not see the shards, so searches fail with
+ * {@link UnsupportedOperationException}.
+ */
+@Service
+@Profile("sharded")
+@Timed(value = "employee.service", description = "Employee service method latency")
+public class ShardedEmployeeService implements EmployeeService {
+    private ShardedEmployeeRepository employeeRepository;
+    private EmployeeMetrics metrics;
+
+    public ShardedEmployeeService(ShardedEmployeeRepository employeeRepository, EmployeeMetrics metrics) {
+        this.employeeRepository = employeeRepository;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Employee saveEmployee(Employee employee) {
+        try {
+            return employeeRepository.insert(employee);
+        } catch (DuplicateKeyException e) {
+            metrics.duplicateEmail("save");
+            throw new DuplicateEmailException("Employee already exist with given email:" + employee.getEmail(), e);
+        }
+    }
+
+    @Override
+    public List<Employee> saveEmployees(List<Employee> employees) {
+        Set<String> emails = new HashSet<>();
+        Set<String> duplicates = new HashSet<>();
+        for (Employee employee : employees) {
+            if (!emails.add(employee.getEmail())) {
+                duplicates.add(employee.getEmail());
+            }
+        }
+        duplicates.addAll(employeeRepository.findExistingEmails(emails));
+        if (!duplicates.isEmpty()) {
+            metrics.duplicateEmail("save_all");
+            throw new DuplicateEmailException("Employee already exist with given email:" + String.join(",", duplicates));
+        }
+        return insertEmployees(employees);
+    }
+
+    @Override
+    public List<Employee> insertEmployees(List<Employee> employees) {
+        try {
+            return employeeRepository.insertAll(employees);
+        } catch (DuplicateKeyException e) {
+            metrics.duplicateEmail("save_all");
+            throw new DuplicateEmailException("Employee already exist with one of the given emails", e);
+        }
+    }
+
+    @Override
+    public Set<String> getExistingEmails(Collection<String> emails) {
+        return employeeRepository.findExistingEmails(emails);
+    }
+
+    @Override
+    public List<Employee> getAllEmployees() {
+        return employeeRepository.findAllOrderById();
+    }
+
+    @Override
+    public List<Employee> getEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit);
+    }
+
+    @Override
+    public <T> List<T> getEmployeesAfter(long afterId, int limit, Class<T> type) {
+        return employeeRepository.findByIdGreaterThanOrderByIdAsc(afterId, limit, type);
+    }
+
+    @Override
+    public void streamAllEmployees(Consumer<Employee> action) {
+        employeeRepository.streamAllOrderById(action);
+    }
+
+    @Override
+    public List<Employee> getEmployeesByName(String firstName, String lastName, int page, int size) {
+        return employeeRepository.findByLastNameAndFirstNameOrderByIdAsc(lastName, firstName, (long) page * size, size);
+    }
+
+    @Override
+    public List<Employee> searchEmployees(String query, int limit) {
+        throw new UnsupportedOperationException("Employee search is not available on sharded storage");
+    }
+
+    @Override
+    public Optional<Employee> getEmployeeById(long id) {
+        Optional<Employee> employee = employeeRepository.findById(id);
+        if (employee.isEmpty()) {
+            metrics.notFound("get");
+        }
+        return employee;
+    }
+
+    @Override
+    public Optional<Long> getEmployeeVersion(long id) {
+        return employeeRepository.findVersionById(id);
+    }
+
+    @Override
+    public String getEmployeesVersion() {
+        return employeeRepository.findVersion();
+    }
+
+    // all three columns in one UPDATE; like a JPA merge, a stale or unknown version is an optimistic locking failure
+    @Override
+    public Employee updateEmployee(Employee updateEmployee) {
+        Map<String, Object> fields = Map.of(
+                "firstName", updateEmployee.getFirstName(),
+                "lastName", updateEmployee.getLastName(),
+                "email", updateEmployee.getEmail());
+        if (update(updateEmployee.getId(), fields, updateEmployee.getVersion()) == 0) {
+            throw new OptimisticLockingFailureException("Employee " + updateEmployee.getId() + " was modified or deleted concurrently");
+        }
+        return employeeRepository.findById(updateEmployee.getId())
+                .orElseThrow(() -> new OptimisticLockingFailureException("Employee " + updateEmployee.getId() + " was deleted concurrently"));
+    }
+
+    @Override
+    public Optional<Employee> patchEmployee(long id, Map<String, Object> changes, Long expectedVersion) {
+        if (update(id, changes, expectedVersion) > 0) {
+            return Optional.of(employeeRepository.findById(id)
+                    .orElseThrow(() -> new OptimisticLockingFailureException("Employee " + id + " was deleted concurrently")));
+        }
+        if (expectedVersion != null && employeeRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException("Employee " + id + " was modified concurrently, expected version " + expectedVersion);
+        }
+        metrics.notFound("patch");
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean deleteEmployee(long id) {
+        if (employeeRepository.deleteById(id) > 0) {
+            return true;
+        }
+        metrics.notFound("delete");
+        return false;
+    }
+
+    @Override
+    public int deleteEmployees(Collection<Long> ids) {
+        int deleted = employeeRepository.deleteByIdIn(ids);
+        return deleted;
+    }
+
+    private int update(long id, Map<String, Object> fields, Long expectedVersion) {
+        try {
+            return employeeRepository.updateFields(id, fields, expectedVersion);
+        } catch (DuplicateKeyException e) {
+            throw new DuplicateEmailException("Employee already exist with given email:" + fields.get("email"), e);
+        }
+    }
+}
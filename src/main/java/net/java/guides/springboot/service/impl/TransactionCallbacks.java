@@ -0,0 +1,25 @@
+package net.java.guides.springboot.service.impl;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// side effects of a write that must only happen once it is committed
+final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    // runs the action after commit, or right away outside a transaction where the write is already durable
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- on the application database (spring.datasource): which employee holds an email, and the id allocator
+create table if not exists employee_emails (
+    email varchar(255) not null primary key,
+    employee_id bigint not null,
+    reserved_at timestamp not null,
+    index idx_employee_emails_employee_id (employee_id)
+);
+
+-- next_val is the first id of the next block, see ShardedEmployeeIdGenerator
+create table if not exists employee_ids (
+    next_val bigint not null
+);
+insert into employee_ids (next_val) select 1 from dual where not exists (select * from employee_ids);
@@ -0,0 +1,15 @@
+-- on every shard; email uniqueness is enforced by employee_emails on the application database
+create table if not exists employees (
+    id bigint not null primary key,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    email varchar(255) not null,
+    version bigint not null,
+    index idx_employees_last_name_first_name (last_name, first_name)
+);
+
+-- behind the collection ETag: bumped in the same transaction as every write to employees on this shard
+create table if not exists employees_version (
+    version bigint not null
+);
+insert into employees_version (version) select 0 from dual where not exists (select * from employees_version);
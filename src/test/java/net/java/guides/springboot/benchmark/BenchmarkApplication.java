@@ -0,0 +1,47 @@
+package net.java.guides.springboot.benchmark;
+
+import net.java.guides.springboot.SpringBootTestingApplication;
+import net.java.guides.springboot.model.Employee;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Boots the real application against an in-memory H2 database so benchmarks measure our code, not the network
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... extraArgs) {
+        // passed as command line arguments so they win over application.properties
+        String[] args = Stream.concat(Stream.of(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--server.port=0",
+                        "--logging.level.root=WARN"), Stream.of(extraArgs))
+                .toArray(String[]::new);
+        return new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .web(webApplicationType)
+                .logStartupInfo(false)
+                .run(args);
+    }
+
+    static List<Employee> employees(int count, String emailPrefix) {
+        List<Employee> employees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            employees.add(Employee.builder()
+                    .firstName("Djibril" + i)
+                    .lastName("Thiandoum" + (i % 100))
+                    .email(emailPrefix + i + "@gmail.com")
+                    .build());
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,71 @@
+package net.java.guides.springboot.benchmark;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Full controller dispatch (MockMvc -> EmployeeController -> service -> embedded database -> Jackson)
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeControllerBenchmark {
+    private static final int ROWS = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET);
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context).build();
+        List<Employee> savedEmployees = context.getBean(EmployeeService.class)
+                .saveEmployees(BenchmarkApplication.employees(ROWS, "seed"));
+        firstId = savedEmployees.get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MvcResult getEmployeeById() throws Exception {
+        return mockMvc.perform(get("/api/employees/{id}", firstId + ThreadLocalRandom.current().nextInt(ROWS)))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getEmployeesPage() throws Exception {
+        return mockMvc.perform(get("/api/employees")
+                        .param("after", String.valueOf(firstId + ThreadLocalRandom.current().nextInt(ROWS)))
+                        .param("limit", "100"))
+                .andReturn();
+    }
+}
@@ -0,0 +1,90 @@
+package net.java.guides.springboot.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import net.java.guides.springboot.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+// Jackson serialization of employee lists in each wire format of the employee API: whole-list writeValueAsBytes vs
+// the element-by-element streaming used by GET /api/employees, and the cost of gzip on top. Payload sizes, raw and
+// gzipped, are printed once per trial since they do not vary between iterations.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    private ObjectMapper objectMapper;
+    private List<Employee> employees;
+
+    @Setup
+    public void setup() throws IOException {
+        // same defaults Spring Boot applies to the ObjectMapper used by the controllers
+        Jackson2ObjectMapperBuilder builder = switch (format) {
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory());
+            case "smile" -> Jackson2ObjectMapperBuilder.smile();
+            default -> Jackson2ObjectMapperBuilder.json();
+        };
+        objectMapper = builder.build();
+        employees = BenchmarkApplication.employees(size, "djibril");
+        for (int i = 0; i < employees.size(); i++) {
+            employees.get(i).setId((long) i);
+        }
+        System.out.printf("%n%s, %d employees: %d bytes, %d bytes gzipped%n", format, size,
+                writeList().length, writeListGzipped().length);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws IOException {
+        return objectMapper.writeValueAsBytes(employees);
+    }
+
+    @Benchmark
+    public void streamList() throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(OutputStream.nullOutputStream())) {
+            generator.writeStartArray();
+            for (Employee employee : employees) {
+                generator.writeObject(employee);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    // what server.compression adds to a large response
+    @Benchmark
+    public byte[] writeListGzipped() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, employees);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,86 @@
+package net.java.guides.springboot.benchmark;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import net.java.guides.springboot.service.impl.CachingEmployeeService;
+import net.java.guides.springboot.service.impl.EmployeeServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// EmployeeService operations against the embedded database, with and without the employee cache in front
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+    private static final int ROWS = 10_000;
+
+    @Param({"cached", "uncached"})
+    public String service;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeService employeeService;
+    private long firstId;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE);
+        employeeService = "cached".equals(service)
+                ? context.getBean(CachingEmployeeService.class)
+                : context.getBean(EmployeeServiceImpl.class);
+        List<Employee> savedEmployees = employeeService.saveEmployees(BenchmarkApplication.employees(ROWS, "seed"));
+        firstId = savedEmployees.get(0).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Employee> getEmployeeById() {
+        return employeeService.getEmployeeById(firstId + ThreadLocalRandom.current().nextInt(ROWS));
+    }
+
+    @Benchmark
+    public List<Employee> getEmployeesPage() {
+        return employeeService.getEmployeesAfter(firstId + ThreadLocalRandom.current().nextInt(ROWS), 100);
+    }
+
+    // typeahead over the in-memory index, a two-word query so candidates also have to be cross-checked
+    @Benchmark
+    public List<Employee> searchEmployees() {
+        return employeeService.searchEmployees("thiandoum" + ThreadLocalRandom.current().nextInt(100) + " djibril1", 10);
+    }
+
+    @Benchmark
+    public Employee saveEmployee() {
+        return employeeService.saveEmployee(Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("bench" + sequence.incrementAndGet() + "@" + service + ".com")
+                .build());
+    }
+}
@@ -0,0 +1,76 @@
+package net.java.guides.springboot.benchmark;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Platform vs virtual thread request execution under high concurrency, over real HTTP to the embedded Tomcat.
+// Compare the thrpt scores and the p0.99 lines of the sample mode. The virtual mode needs a Java 21 JVM.
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int ROWS = 10_000;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // the cache is off so every request really goes to the database
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "--employee.virtual-threads.enabled=" + "virtual".equals(mode),
+                "--employee.cache.enabled=false");
+        List<Employee> savedEmployees = context.getBean(EmployeeService.class)
+                .saveEmployees(BenchmarkApplication.employees(ROWS, "seed"));
+        firstId = savedEmployees.get(0).getId();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/employees/";
+        httpClient = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getEmployeeById() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + (firstId + ThreadLocalRandom.current().nextInt(ROWS))))
+                .GET()
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
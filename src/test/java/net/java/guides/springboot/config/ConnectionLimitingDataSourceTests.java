@@ -0,0 +1,119 @@
+package net.java.guides.springboot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class ConnectionLimitingDataSourceTests {
+    @Mock
+    private DataSource targetDataSource;
+
+    private ConnectionLimitingDataSource dataSource;
+
+    @BeforeEach
+    public void setup() {
+        dataSource = new ConnectionLimitingDataSource(targetDataSource, 1, Duration.ofMillis(50));
+    }
+
+    @DisplayName("Junit test for a second connection failing fast while the only permit is taken")
+    @Test
+    public void givenAllPermitsTaken_whenGetConnection_thenFailFast() throws SQLException {
+        // given - precondition or setup
+        given(targetDataSource.getConnection()).willReturn(mock(Connection.class));
+        dataSource.getConnection();
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+
+        // then - verify the output
+        verify(targetDataSource, times(1)).getConnection();
+    }
+
+    @DisplayName("Junit test for closing a connection releasing its permit exactly once")
+    @Test
+    public void givenOpenConnection_whenClosedTwice_thenPermitReleasedOnce() throws SQLException {
+        // given - precondition or setup
+        Connection target = mock(Connection.class);
+        given(targetDataSource.getConnection()).willReturn(target);
+        Connection connection = dataSource.getConnection();
+
+        // when - action or the behavior that wa are going to test
+        connection.close();
+        connection.close();
+
+        // then - verify the output
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        verify(target, times(2)).close();
+    }
+
+    @DisplayName("Junit test for a failing pool checkout giving the permit back")
+    @Test
+    public void givenFailingTargetDataSource_whenGetConnection_thenPermitReleased() throws SQLException {
+        // given - precondition or setup
+        given(targetDataSource.getConnection()).willThrow(new SQLException("pool exhausted"));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(SQLException.class, () -> dataSource.getConnection());
+
+        // then - verify the output
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for the post processor limiting a connection pool to its own size")
+    @Test
+    public void givenHikariPool_whenPostProcessed_thenLimitedToPoolSize() throws Exception {
+        // given - precondition or setup
+        HikariDataSource pool = new HikariDataSource();
+        pool.setMaximumPoolSize(7);
+        BeanPostProcessor postProcessor = VirtualThreadConfig.connectionLimitingDataSourcePostProcessor(Duration.ofSeconds(2));
+
+        // when - action or the behavior that wa are going to test
+        Object processed = postProcessor.postProcessAfterInitialization(pool, "dataSource");
+
+        // then - verify the output
+        assertThat(processed).isInstanceOf(ConnectionLimitingDataSource.class);
+        ConnectionLimitingDataSource limited = (ConnectionLimitingDataSource) processed;
+        assertThat(limited.availablePermits()).isEqualTo(7);
+        limited.close();
+        assertThat(pool.isClosed()).isTrue();
+    }
+
+    @DisplayName("Junit test for the post processor leaving DataSources built on top of pools alone")
+    @Test
+    public void givenRoutingDataSource_whenPostProcessed_thenNotWrapped() throws Exception {
+        // given - precondition or setup
+        JdbcDataSource primary = new JdbcDataSource();
+        primary.setURL("jdbc:h2:mem:limiting_primary;DB_CLOSE_DELAY=-1");
+        primary.setUser("sa");
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, List.of(),
+                connection -> Duration.ZERO, Duration.ofSeconds(5));
+        BeanPostProcessor postProcessor = VirtualThreadConfig.connectionLimitingDataSourcePostProcessor(Duration.ofSeconds(2));
+
+        // when - action or the behavior that wa are going to test
+        Object processed = postProcessor.postProcessAfterInitialization(routing, "dataSource");
+
+        // then - verify the output
+        assertThat(processed).isSameAs(routing);
+    }
+}
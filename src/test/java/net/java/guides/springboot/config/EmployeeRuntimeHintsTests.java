@@ -0,0 +1,74 @@
+package net.java.guides.springboot.config;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.model.EmployeeEmail;
+import net.java.guides.springboot.model.EmployeeName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeRuntimeHintsTests {
+    private RuntimeHints hints;
+
+    @BeforeEach
+    public void setup() {
+        hints = new RuntimeHints();
+        new EmployeeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @DisplayName("Junit test for the Lombok accessors of Employee being reachable by reflection")
+    @Test
+    public void givenHints_whenEmployeeAccessors_thenRegisteredForInvocation() throws Exception {
+        // when - action or the behavior that wa are going to test
+        boolean getter = RuntimeHintsPredicates.reflection().onMethod(Employee.class.getMethod("getEmail")).test(hints);
+        boolean setter = RuntimeHintsPredicates.reflection().onMethod(Employee.class.getMethod("setEmail", String.class)).test(hints);
+        boolean changeGetter = RuntimeHintsPredicates.reflection().onMethod(EmployeeChange.class.getMethod("getEmployeeId")).test(hints);
+
+        // then - verify the output
+        assertThat(getter).isTrue();
+        assertThat(setter).isTrue();
+        assertThat(changeGetter).isTrue();
+    }
+
+    @DisplayName("Junit test for the projection constructors used by the dynamic keyset query")
+    @Test
+    public void givenHints_whenProjectionConstructors_thenRegisteredForInvocation() throws Exception {
+        // when - action or the behavior that wa are going to test
+        boolean email = RuntimeHintsPredicates.reflection()
+                .onConstructor(EmployeeEmail.class.getDeclaredConstructor(Long.class, String.class)).test(hints);
+        boolean name = RuntimeHintsPredicates.reflection()
+                .onConstructor(EmployeeName.class.getDeclaredConstructor(Long.class, String.class, String.class)).test(hints);
+
+        // then - verify the output
+        assertThat(email).isTrue();
+        assertThat(name).isTrue();
+    }
+
+    @DisplayName("Junit test for the write-behind log entry, the import records and the JCache provider being registered")
+    @Test
+    public void givenHints_whenTypesLookedUpByName_thenRegistered() throws Exception {
+        // when - action or the behavior that wa are going to test
+        boolean entry = RuntimeHintsPredicates.reflection()
+                .onType(TypeReference.of(EmployeeRuntimeHints.WRITE_BEHIND_ENTRY)).test(hints);
+        boolean importCheckpoint = RuntimeHintsPredicates.reflection()
+                .onType(Class.forName(EmployeeRuntimeHints.IMPORT_CHECKPOINT)).test(hints);
+        boolean importError = RuntimeHintsPredicates.reflection()
+                .onType(Class.forName(EmployeeRuntimeHints.IMPORT_ERROR)).test(hints);
+        boolean cachingProvider = RuntimeHintsPredicates.reflection()
+                .onConstructor(Class.forName(EmployeeRuntimeHints.CACHING_PROVIDER).getConstructor()).test(hints);
+        boolean referenceConf = RuntimeHintsPredicates.resource().forResource("reference.conf").test(hints);
+
+        // then - verify the output
+        assertThat(entry).isTrue();
+        assertThat(importCheckpoint).isTrue();
+        assertThat(importError).isTrue();
+        assertThat(cachingProvider).isTrue();
+        assertThat(referenceConf).isTrue();
+    }
+}
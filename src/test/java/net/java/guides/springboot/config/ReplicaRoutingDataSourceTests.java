@@ -0,0 +1,145 @@
+package net.java.guides.springboot.config;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// two in-memory H2 databases stand in for the primary and its replica, each query reports which one answered
+public class ReplicaRoutingDataSourceTests {
+    private AtomicReference<Duration> lag = new AtomicReference<>(Duration.ZERO);
+    private AtomicBoolean replicaDown = new AtomicBoolean();
+    private ReplicaRoutingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void setup() {
+        DataSource replica = new DelegatingDataSource(h2("routing_replica")) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (replicaDown.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        };
+        dataSource = new ReplicaRoutingDataSource(h2("routing_primary"), List.of(replica), connection -> lag.get(), Duration.ofSeconds(5));
+        dataSource.probe();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        ReadYourWrites.end();
+        dataSource.close();
+    }
+
+    @DisplayName("Junit test for read-only transactions going to the replica and the others to the primary")
+    @Test
+    public void givenUpToDateReplica_whenTransactions_thenReadOnlyOnReplica() {
+        // when - action or the behavior that wa are going to test
+        String read = readOnly.execute(status -> database());
+        String write = readWrite.execute(status -> database());
+
+        // then - verify the output
+        assertThat(read).isEqualToIgnoringCase("routing_replica");
+        assertThat(write).isEqualToIgnoringCase("routing_primary");
+    }
+
+    @DisplayName("Junit test for reads falling back to the primary while the replica lags too far behind")
+    @Test
+    public void givenReplicaOverMaxLag_whenReadOnlyTransaction_thenPrimary() {
+        // given - precondition or setup
+        lag.set(Duration.ofSeconds(10));
+        dataSource.probe();
+
+        // when - action or the behavior that wa are going to test
+        String read = readOnly.execute(status -> database());
+
+        // then - verify the output
+        assertThat(read).isEqualToIgnoringCase("routing_primary");
+    }
+
+    @DisplayName("Junit test for reads falling back to the primary while the replica is not replicating")
+    @Test
+    public void givenReplicationStopped_whenReadOnlyTransaction_thenPrimary() {
+        // given - precondition or setup
+        lag.set(null);
+        dataSource.probe();
+
+        // when - action or the behavior that wa are going to test
+        String read = readOnly.execute(status -> database());
+
+        // then - verify the output
+        assertThat(read).isEqualToIgnoringCase("routing_primary");
+    }
+
+    @DisplayName("Junit test for a caller's reads staying on the primary until the replica has applied its write")
+    @Test
+    public void givenOwnWrite_whenReadOnlyTransaction_thenPrimaryUntilReplicaCaughtUp() throws InterruptedException {
+        // given - precondition or setup
+        ReadYourWrites.begin(0, null);
+        ReadYourWrites.written();
+
+        // when - action or the behavior that wa are going to test
+        String readAfterWrite = readOnly.execute(status -> database());
+        Thread.sleep(5);
+        dataSource.probe();
+        String readAfterCatchUp = readOnly.execute(status -> database());
+
+        // then - verify the output
+        assertThat(readAfterWrite).isEqualToIgnoringCase("routing_primary");
+        assertThat(readAfterCatchUp).isEqualToIgnoringCase("routing_replica");
+    }
+
+    @DisplayName("Junit test for a replica refusing connections being taken out of rotation")
+    @Test
+    public void givenReplicaRefusingConnections_whenReadOnlyTransactions_thenPrimary() {
+        // given - precondition or setup
+        replicaDown.set(true);
+
+        // when - action or the behavior that wa are going to test
+        String read = readOnly.execute(status -> database());
+        replicaDown.set(false);
+        String readBeforeProbe = readOnly.execute(status -> database());
+        dataSource.probe();
+        String readAfterProbe = readOnly.execute(status -> database());
+
+        // then - verify the output
+        assertThat(read).isEqualToIgnoringCase("routing_primary");
+        assertThat(readBeforeProbe).isEqualToIgnoringCase("routing_primary");
+        assertThat(readAfterProbe).isEqualToIgnoringCase("routing_replica");
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select database()", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        return dataSource;
+    }
+}
@@ -0,0 +1,62 @@
+package net.java.guides.springboot.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(OutputCaptureExtension.class)
+public class StatementCountingFilterTests {
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private StatementCountingInspector inspector = new StatementCountingInspector();
+
+    @DisplayName("Junit test for the statements counted per request")
+    @Test
+    public void givenRequestWithinBudget_whenFilter_thenStatementsRecordedWithoutWarning(CapturedOutput output) throws Exception {
+        // given - precondition or setup
+        StatementCountingFilter filter = new StatementCountingFilter(meterRegistry, 2);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees/1");
+
+        // when - action or the behavior that wa are going to test
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/employees/{id}");
+            inspector.inspect("select * from employees where id=?");
+        });
+
+        // then - verify the output
+        assertThat(request.getAttribute(StatementCountingFilter.STATEMENTS_ATTRIBUTE)).isEqualTo(1);
+        assertThat(meterRegistry.get("employee.request.statements").tags("method", "GET", "uri", "/api/employees/{id}")
+                .summary().totalAmount()).isEqualTo(1.0);
+        assertThat(output).doesNotContain("over the budget");
+    }
+
+    @DisplayName("Junit test for a request issuing more statements than the budget")
+    @Test
+    public void givenRequestOverBudget_whenFilter_thenWarningLogged(CapturedOutput output) throws Exception {
+        // given - precondition or setup
+        StatementCountingFilter filter = new StatementCountingFilter(meterRegistry, 2);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/employees");
+
+        // when - action or the behavior that wa are going to test
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            for (int i = 0; i < 3; i++) {
+                inspector.inspect("select * from employees where id=?");
+            }
+        });
+
+        // then - verify the output
+        assertThat(request.getAttribute(StatementCountingFilter.STATEMENTS_ATTRIBUTE)).isEqualTo(3);
+        assertThat(output).contains("GET UNKNOWN issued 3 SQL statements, over the budget of 2");
+        // nothing is counted once the request is over
+        inspector.inspect("select 1");
+        assertThat(StatementCountingInspector.stop()).isZero();
+    }
+}
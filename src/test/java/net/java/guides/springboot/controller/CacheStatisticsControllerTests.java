@@ -0,0 +1,85 @@
+package net.java.guides.springboot.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.persistence.EntityManagerFactory;
+import net.java.guides.springboot.service.impl.CachingEmployeeService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CacheStatisticsController.class)
+public class CacheStatisticsControllerTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private CachingEmployeeService cachingEmployeeService;
+
+    @DisplayName("Junit test for cache statistics REST API")
+    @Test
+    public void givenCacheActivity_whenGetStatistics_thenReturnHitRatios() throws Exception {
+        // given - precondition or setup
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Statistics statistics = mock(Statistics.class);
+        CacheRegionStatistics regionStatistics = mock(CacheRegionStatistics.class);
+        given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+        given(sessionFactory.getStatistics()).willReturn(statistics);
+        given(statistics.isStatisticsEnabled()).willReturn(true);
+        given(statistics.getSecondLevelCacheRegionNames()).willReturn(new String[]{"employees"});
+        given(statistics.getCacheRegionStatistics("employees")).willReturn(regionStatistics);
+        given(regionStatistics.getHitCount()).willReturn(3L);
+        given(regionStatistics.getMissCount()).willReturn(1L);
+        given(statistics.getQueryCacheMissCount()).willReturn(2L);
+        given(cachingEmployeeService.stats()).willReturn(CacheStats.empty());
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/cache/statistics"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.secondLevelCache.employees.hitRatio", is(0.75)))
+                .andExpect(jsonPath("$.queryCache.hitRatio", is(0.0)));
+    }
+
+    @DisplayName("Junit test for cache statistics REST API counting the puts of the employee cache")
+    @Test
+    public void givenEmployeesCached_whenGetStatistics_thenReturnPuts() throws Exception {
+        // given - precondition or setup
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        Statistics statistics = mock(Statistics.class);
+        given(entityManagerFactory.unwrap(SessionFactory.class)).willReturn(sessionFactory);
+        given(sessionFactory.getStatistics()).willReturn(statistics);
+        given(statistics.getSecondLevelCacheRegionNames()).willReturn(new String[0]);
+        given(cachingEmployeeService.stats()).willReturn(CacheStats.of(1, 2, 0, 0, 0, 0, 0));
+        given(cachingEmployeeService.puts()).willReturn(2L);
+        given(cachingEmployeeService.size()).willReturn(2L);
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/cache/statistics"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.employeeCache.puts", is(2)))
+                .andExpect(jsonPath("$.employeeCache.size", is(2)));
+    }
+}
@@ -1,32 +1,50 @@
 package net.java.guides.springboot.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import net.java.guides.springboot.exception.DuplicateEmailException;
 import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeEmail;
 import net.java.guides.springboot.service.EmployeeService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.hamcrest.CoreMatchers.is;
 
 
-@WebMvcTest
+@WebMvcTest(EmployeeController.class)
 public class EmployeeControllerTests {
     @Autowired
     private MockMvc mockMvc;
@@ -61,6 +79,55 @@ public class EmployeeControllerTests {
                 .andExpect(jsonPath("$.email", is(employee.getEmail())));
     }
 
+    // Junit test for bulk create employees REST API
+    @Test
+    public void givenListOfEmployees_whenCreateEmployees_thenReturnSavedEmployees() throws Exception{
+        // given - precondition or setup
+        List<Employee> listOfEmployees = List.of(
+                Employee.builder().firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build(),
+                Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").build());
+        given(employeeService.saveEmployees(any()))
+                .willAnswer((invocation) -> invocation.getArgument(0));
+
+        // when - action or behavior we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(listOfEmployees)));
+
+        // then -verify the result or output using assert statements
+        response.andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.size()", is(listOfEmployees.size())))
+                .andExpect(jsonPath("$[1].email", is("awa.thiandoum@ndiaye.com")));
+    }
+
+    // Junit test for bulk create employees REST API with a NDJSON body
+    @Test
+    public void givenNdjsonEmployees_whenCreateEmployees_thenReturnCreatedCount() throws Exception{
+        // given - precondition or setup
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < EmployeeController.BULK_CHUNK_SIZE + 1; i++) {
+            ndjson.append(objectMapper.writeValueAsString(Employee.builder()
+                    .firstName("Djibril")
+                    .lastName("Thiandoum")
+                    .email("djibril" + i + "@gmail.com")
+                    .build())).append('\n');
+        }
+        given(employeeService.saveEmployees(any()))
+                .willAnswer((invocation) -> invocation.getArgument(0));
+
+        // when - action or behavior we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson.toString()));
+
+        // then -verify the result or output using assert statements
+        response.andDo(print())
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.created", is(EmployeeController.BULK_CHUNK_SIZE + 1)));
+        verify(employeeService, times(2)).saveEmployees(any());
+    }
+
    // Junit test for Get All Employees REST API
     @Test
     public void givenListOfEmployees_whenGetAllEmployees_thenReturnEmployeesList() throws Exception{
@@ -68,10 +135,17 @@ public class EmployeeControllerTests {
         List<Employee> listOfEmployees = new ArrayList<>();
         listOfEmployees.add(Employee.builder().firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build());
         listOfEmployees.add(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").build());
-        given(employeeService.getAllEmployees()).willReturn(listOfEmployees);
+        willAnswer((invocation) -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            listOfEmployees.forEach(action);
+            return null;
+        }).given(employeeService).streamAllEmployees(any());
 
         // when - action or the behavior that wa are going to test
-        ResultActions response = mockMvc.perform(get("/api/employees"));
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions response = mockMvc.perform(asyncDispatch(mvcResult));
 
         // then - verify the output
         response.andExpect(status().isOk())
@@ -79,6 +153,241 @@ public class EmployeeControllerTests {
                 .andExpect(jsonPath("$.size()", is(listOfEmployees.size())));
     }
 
+    // Junit test for Get Employees page (keyset pagination) REST API
+    @Test
+    public void givenAfterIdAndLimit_whenGetEmployeesPage_thenReturnNextPage() throws Exception{
+        // given - precondition or setup
+        List<Employee> page = List.of(
+                Employee.builder().id(11L).firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build(),
+                Employee.builder().id(12L).firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").build());
+        given(employeeService.getEmployeesAfter(10L, 2)).willReturn(page);
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("after", "10")
+                .param("limit", "2"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(page.size())))
+                .andExpect(jsonPath("$[1].id", is(12)));
+    }
+
+    // Junit test for Get Employees page REST API - limit is capped
+    @Test
+    public void givenTooLargeLimit_whenGetEmployeesPage_thenLimitIsCapped() throws Exception{
+        // given - precondition or setup
+        given(employeeService.getEmployeesAfter(0L, EmployeeController.MAX_PAGE_SIZE)).willReturn(List.of());
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("limit", "1000000"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(0)));
+    }
+
+    // Junit test for Get Employees page REST API - projection selected by fields
+    @Test
+    public void givenFields_whenGetEmployeesPage_thenReturnProjection() throws Exception{
+        // given - precondition or setup
+        given(employeeService.getEmployeesAfter(0L, 2, EmployeeEmail.class))
+                .willReturn(List.of(new EmployeeEmail(1L, "dgthian@gmail.com")));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("limit", "2")
+                .param("fields", "email"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$[0].email", is("dgthian@gmail.com")))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+    }
+
+    // Junit test for Get Employees page REST API - unknown field
+    @Test
+    public void givenUnknownField_whenGetEmployeesPage_thenReturn400() throws Exception{
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("limit", "2")
+                .param("fields", "id,salary"));
+
+        // then - verify the output
+        response.andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for search employees REST API")
+    @Test
+    public void givenQuery_whenSearchEmployees_thenReturnMatches() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .id(1L)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build();
+        given(employeeService.searchEmployees("dji", 10)).willReturn(List.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/search").param("q", "dji"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is("Djibril")));
+    }
+
+    @DisplayName("Junit test for search employees REST API without search index")
+    @Test
+    public void givenSearchUnsupported_whenSearchEmployees_thenNotImplemented() throws Exception {
+        // given - precondition or setup
+        given(employeeService.searchEmployees("dji", 10))
+                .willThrow(new UnsupportedOperationException("Employee search is not available on sharded storage"));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/search").param("q", "dji"));
+
+        // then - verify the output
+        response.andExpect(status().isNotImplemented())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for Get All Employees REST API in CBOR")
+    @Test
+    public void givenCborAccepted_whenGetAllEmployees_thenReturnCborArray() throws Exception {
+        // given - precondition or setup
+        List<Employee> listOfEmployees = List.of(
+                Employee.builder().firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build(),
+                Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").build());
+        willAnswer((invocation) -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            listOfEmployees.forEach(action);
+            return null;
+        }).given(employeeService).streamAllEmployees(any());
+
+        // when - action or the behavior that wa are going to test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(mvcResult))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        Employee[] employees = new ObjectMapper(new CBORFactory()).readValue(body, Employee[].class);
+        assertThat(employees).extracting(Employee::getEmail)
+                .containsExactly("djibril.thiandoum@gmail.com", "awa.thiandoum@ndiaye.com");
+    }
+
+    @DisplayName("Junit test for Get All Employees REST API in an unsupported format")
+    @Test
+    public void givenUnsupportedFormat_whenGetAllEmployees_thenRejected() throws Exception {
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees").accept(MediaType.APPLICATION_XML));
+
+        // then - verify the output - 400 rather than 406, the other GET mappings only differ by their parameters
+        response.andExpect(status().is4xxClientError());
+        verify(employeeService, never()).streamAllEmployees(any());
+    }
+
+    @DisplayName("Junit test for the CSV export REST API")
+    @Test
+    public void givenListOfEmployees_whenExportCsv_thenReturnCsvAttachment() throws Exception {
+        // given - precondition or setup
+        List<Employee> listOfEmployees = List.of(
+                Employee.builder().id(1L).firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").version(0L).build(),
+                Employee.builder().id(2L).firstName("Awa").lastName("Ndiaye, Fall").email("awa.thiandoum@ndiaye.com").version(3L).build());
+        willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            listOfEmployees.forEach(action);
+            return null;
+        }).given(employeeService).streamAllEmployees(any());
+        given(employeeService.getEmployeesVersion()).willReturn("v1");
+
+        // when - action or the behavior that wa are going to test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions response = mockMvc.perform(asyncDispatch(mvcResult));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(EmployeeController.TEXT_CSV))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"employees.csv\""))
+                .andExpect(header().string("ETag", "\"v1-csv\""))
+                .andExpect(content().string("id,firstName,lastName,email,version\n"
+                        + "1,Djibril,Thiandoum,djibril.thiandoum@gmail.com,0\n"
+                        + "2,Awa,\"Ndiaye, Fall\",awa.thiandoum@ndiaye.com,3\n"));
+    }
+
+    @DisplayName("Junit test for the NDJSON export REST API")
+    @Test
+    public void givenListOfEmployees_whenExportNdjson_thenReturnOneEmployeePerLine() throws Exception {
+        // given - precondition or setup
+        List<Employee> listOfEmployees = List.of(
+                Employee.builder().id(1L).firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").version(0L).build(),
+                Employee.builder().id(2L).firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").version(0L).build());
+        willAnswer(invocation -> {
+            Consumer<Employee> action = invocation.getArgument(0);
+            listOfEmployees.forEach(action);
+            return null;
+        }).given(employeeService).streamAllEmployees(any());
+
+        // when - action or the behavior that wa are going to test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(mvcResult))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertThat(body).endsWith("\n");
+        List<Employee> employees = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            employees.add(objectMapper.readValue(line, Employee.class));
+        }
+        assertThat(employees).extracting(Employee::getEmail)
+                .containsExactly("djibril.thiandoum@gmail.com", "awa.thiandoum@ndiaye.com");
+    }
+
+    @DisplayName("Junit test for the export REST API in an unknown format")
+    @Test
+    public void givenUnknownFormat_whenExport_thenBadRequest() throws Exception {
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/export").param("format", "xlsx"));
+
+        // then - verify the output
+        response.andExpect(status().isBadRequest());
+        verify(employeeService, never()).streamAllEmployees(any());
+    }
+
+    @DisplayName("Junit test for GET employee by id REST API in Smile")
+    @Test
+    public void givenSmileAccepted_whenGetEmployeeById_thenReturnSmileEmployee() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder().id(1L).firstName("Djibril").lastName("Thiandoum").email("dgthiand@gmail.com").version(0L).build();
+        given(employeeService.getEmployeeById(1L)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        byte[] body = mockMvc.perform(get("/api/employees/{id}", 1L).accept("application/x-jackson-smile"))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(new ObjectMapper(new SmileFactory()).readValue(body, Employee.class).getEmail()).isEqualTo(employee.getEmail());
+    }
+
     // positive scenario - valid employee id
     // Junit test for GET employee by id REST API
     @Test
@@ -104,6 +413,92 @@ public class EmployeeControllerTests {
     }
 
 
+    @DisplayName("Junit test for GET employee by id REST API with a current ETag")
+    @Test
+    public void givenMatchingETag_whenGetEmployeeById_thenReturn304WithoutLoadingEmployee() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        given(employeeService.getEmployeeVersion(employeeId)).willReturn(Optional.of(3L));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId).header("If-None-Match", "\"3-json\""));
+
+        // then - verify the output
+        response.andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3-json\""))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andExpect(content().string(""));
+        verify(employeeService, never()).getEmployeeById(employeeId);
+    }
+
+    @DisplayName("Junit test for GET employee by id REST API with an outdated ETag")
+    @Test
+    public void givenOutdatedETag_whenGetEmployeeById_thenReturnEmployeeWithNewETag() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee employee = Employee.builder()
+                .id(employeeId)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthiand@gmail.com")
+                .version(4L)
+                .build();
+        given(employeeService.getEmployeeVersion(employeeId)).willReturn(Optional.of(4L));
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId).header("If-None-Match", "\"3-json\""));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"4-json\""))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andExpect(jsonPath("$.version", is(4)));
+    }
+
+    @DisplayName("Junit test for Get All Employees REST API with a current ETag")
+    @Test
+    public void givenMatchingETag_whenGetAllEmployees_thenReturn304WithoutScan() throws Exception {
+        // given - precondition or setup
+        given(employeeService.getEmployeesVersion()).willReturn("lq2x-7");
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees").header("If-None-Match", "\"lq2x-7-json\""));
+
+        // then - verify the output
+        response.andExpect(status().isNotModified())
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andExpect(request().asyncNotStarted());
+        verify(employeeService, never()).streamAllEmployees(any());
+    }
+
+    @DisplayName("Junit test for GET employee by id REST API with the ETag of another format")
+    @Test
+    public void givenJsonETag_whenGetEmployeeByIdAsCbor_thenReturnEmployeeWithCborETag() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee employee = Employee.builder()
+                .id(employeeId)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthiand@gmail.com")
+                .version(3L)
+                .build();
+        given(employeeService.getEmployeeVersion(employeeId)).willReturn(Optional.of(3L));
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                .accept(MediaType.APPLICATION_CBOR)
+                .header("If-None-Match", "\"3-json\""));
+
+        // then - verify the output - a cache holding the JSON body must not answer a CBOR request with it
+        response.andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"3-cbor\""))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+    }
+
     // negative scenario - valid employee id
     // Junit test for GET employee by id REST API
     @Test
@@ -125,6 +520,77 @@ public class EmployeeControllerTests {
                 .andDo(print());
     }
 
+    @DisplayName("Junit test for create employee REST API with an email already taken")
+    @Test
+    public void givenDuplicateEmail_whenCreateEmployee_thenReturn409() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build();
+        given(employeeService.saveEmployee(any(Employee.class)))
+                .willThrow(new DuplicateEmailException("Employee already exist with given email:dgthian@gmail.com"));
+
+        // when - action or behavior we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)));
+
+        // then - verify the output
+        response.andExpect(status().isConflict())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for update employee REST API with an email already taken")
+    @Test
+    public void givenDuplicateEmail_whenUpdateEmployee_thenReturn409() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("dgthian@gmail.com")
+                .build();
+        given(employeeService.patchEmployee(eq(employeeId), anyMap(), isNull()))
+                .willThrow(new DuplicateEmailException("Employee already exist with given email:dgthian@gmail.com"));
+
+        // when - action or behavior we are going test
+        ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        // then - verify the output
+        response.andExpect(status().isConflict())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for get employees by name REST API with a capped page size")
+    @Test
+    public void givenName_whenGetEmployeesByName_thenReturnPage() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .id(1L)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build();
+        given(employeeService.getEmployeesByName("Djibril", "Thiandoum", 0, EmployeeController.MAX_PAGE_SIZE))
+                .willReturn(List.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("firstName", "Djibril")
+                .param("lastName", "Thiandoum")
+                .param("size", "100000"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].email", is(employee.getEmail())));
+    }
+
     // Junit test for update employee REST API - positive scenario
     @Test
     public void givenUpdatedEmployee_whenUpdatedEmployee_thenReturnEmployeeObject() throws Exception{
@@ -143,10 +609,9 @@ public class EmployeeControllerTests {
                 .email("awa@gmail.com")
                 .build();
 
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(savedEmployee));
-
-        given(employeeService.updateEmployee(any(Employee.class)))
-                .willAnswer((invocation) -> invocation.getArgument(0));
+        // no version sent, the response still carries the one the update gave the row
+        given(employeeService.patchEmployee(eq(employeeId), anyMap(), isNull()))
+                .willReturn(Optional.of(updatedEmployee.toBuilder().id(employeeId).version(4L).build()));
 
         // when - action or the behavior that wa are going to test
         ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
@@ -156,9 +621,11 @@ public class EmployeeControllerTests {
         // then - verify the output
         response.andExpect(status().isOk())
                 .andDo(print())
+                .andExpect(jsonPath("$.id", is(1)))
                 .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(updatedEmployee.getLastName())))
-                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())));
+                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())))
+                .andExpect(jsonPath("$.version", is(4)));
     }
 
 
@@ -181,35 +648,142 @@ public class EmployeeControllerTests {
                 .email("awa@gmail.com")
                 .build();
 
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
+        given(employeeService.patchEmployee(eq(employeeId), anyMap(), isNull())).willReturn(Optional.empty());
 
-        given(employeeService.updateEmployee(any(Employee.class)))
-                .willAnswer((invocation) -> invocation.getArgument(0));
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        // then - verify the output
+        response.andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
+
+    @DisplayName("Junit test for update employee REST API with a stale version")
+    @Test
+    public void givenStaleVersion_whenUpdateEmployee_thenReturn409() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa@gmail.com")
+                .version(3L)
+                .build();
+        given(employeeService.patchEmployee(eq(employeeId), anyMap(), eq(3L)))
+                .willThrow(new OptimisticLockingFailureException("Employee 1 was modified concurrently"));
 
         // when - action or the behavior that wa are going to test
         ResultActions response = mockMvc.perform(put("/api/employees/{id}", employeeId)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updatedEmployee)));
 
+        // then - verify the output
+        response.andExpect(status().isConflict())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for patch employee REST API writing only the given fields")
+    @Test
+    public void givenMergePatch_whenPatchEmployee_thenReturn204() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        given(employeeService.patchEmployee(employeeId, Map.of("email", "awa@gmail.com"), 2L))
+                .willReturn(Optional.of(Employee.builder().id(employeeId).email("awa@gmail.com").version(3L).build()));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"email\":\"awa@gmail.com\",\"version\":2}"));
+
+        // then - verify the output
+        response.andExpect(status().isNoContent())
+                .andDo(print());
+        verify(employeeService, times(1)).patchEmployee(employeeId, Map.of("email", "awa@gmail.com"), 2L);
+    }
+
+    @DisplayName("Junit test for patch employee REST API - employee not found")
+    @Test
+    public void givenMissingEmployee_whenPatchEmployee_thenReturn404() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        given(employeeService.patchEmployee(employeeId, Map.of("firstName", "Awa"), null)).willReturn(Optional.empty());
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"firstName\":\"Awa\"}"));
+
         // then - verify the output
         response.andExpect(status().isNotFound())
                 .andDo(print());
     }
 
+    @DisplayName("Junit test for patch employee REST API rejecting unknown and null members")
+    @Test
+    public void givenInvalidMergePatch_whenPatchEmployee_thenReturn400() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+
+        // when - action or the behavior that wa are going to test
+        ResultActions unknownMember = mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"id\":7}"));
+        ResultActions nullMember = mockMvc.perform(patch("/api/employees/{id}", employeeId)
+                .contentType(EmployeeController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"email\":null}"));
+
+        // then - verify the output
+        unknownMember.andExpect(status().isBadRequest());
+        nullMember.andExpect(status().isBadRequest());
+        verify(employeeService, never()).patchEmployee(anyLong(), anyMap(), any());
+    }
 
     // Junit test for delete employee REST API
     @DisplayName("Junit test for delete employee REST API")
     @Test
-    public void givenEmployeeId_whenDeleteEmployee_thenReturn200() throws Exception {
+    public void givenEmployeeId_whenDeleteEmployee_thenReturn204() throws Exception {
         // given - precondition or setup
         long employeeId = 1L;
-        willDoNothing().given(employeeService).deleteEmployee(employeeId);
+        given(employeeService.deleteEmployee(employeeId)).willReturn(true);
 
         // when - action or the behavior that wa are going to test
         ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employeeId));
 
         // then - verify the output
-        response.andExpect(status().isOk())
+        response.andExpect(status().isNoContent())
+                .andDo(print());
+    }
+
+    @DisplayName("Junit test for delete employee REST API - employee not found")
+    @Test
+    public void givenUnknownEmployeeId_whenDeleteEmployee_thenReturn404() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        given(employeeService.deleteEmployee(employeeId)).willReturn(false);
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}", employeeId));
+
+        // then - verify the output
+        response.andExpect(status().isNotFound())
                 .andDo(print());
     }
+
+    @DisplayName("Junit test for bulk delete employees REST API")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenReturnDeletedCount() throws Exception {
+        // given - precondition or setup
+        given(employeeService.deleteEmployees(List.of(1L, 2L, 3L))).willReturn(2);
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(delete("/api/employees").param("ids", "1,2,3"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.deleted", is(2)));
+    }
 }
@@ -0,0 +1,114 @@
+package net.java.guides.springboot.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.EmployeeService;
+import net.java.guides.springboot.service.impl.EmployeeWriteBehindQueue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST and PUT with employee.write-behind.enabled=true, the queue bean is what switches the mode on
+@WebMvcTest(EmployeeController.class)
+public class EmployeeControllerWriteBehindTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmployeeService employeeService;
+
+    @MockBean
+    private EmployeeWriteBehindQueue writeBehindQueue;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Employee employee = Employee.builder()
+            .firstName("Djibril")
+            .lastName("Thiandoum")
+            .email("dgthian@gmail.com")
+            .build();
+
+    @DisplayName("Junit test for POST accepted into the write-behind queue")
+    @Test
+    public void givenWriteBehind_whenCreateEmployee_thenReturn202() throws Exception {
+        // given - precondition or setup
+        given(writeBehindQueue.enqueueCreate(any(Employee.class))).willReturn(true);
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+
+                // then - verify the output
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.email", is(employee.getEmail())));
+        verifyNoInteractions(employeeService);
+    }
+
+    @DisplayName("Junit test for PUT accepted into the write-behind queue")
+    @Test
+    public void givenWriteBehind_whenUpdateEmployee_thenReturn202() throws Exception {
+        // given - precondition or setup
+        given(writeBehindQueue.enqueueUpdate(eq(1L), any(Employee.class))).willReturn(true);
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(put("/api/employees/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+
+                // then - verify the output
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.id", is(1)));
+        verify(employeeService, never()).patchEmployee(eq(1L), any(), any());
+    }
+
+    @DisplayName("Junit test for an invalid POST with write-behind enabled")
+    @Test
+    public void givenInvalidEmployee_whenCreateEmployee_thenReturn400AndNothingQueued() throws Exception {
+        // given - precondition or setup
+        Employee invalid = employee.toBuilder().email(null).build();
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(invalid)))
+
+                // then - verify the output
+                .andExpect(status().isBadRequest());
+        verify(writeBehindQueue, never()).enqueueCreate(any(Employee.class));
+    }
+
+    @DisplayName("Junit test for POST when the write-behind queue is full")
+    @Test
+    public void givenFullQueue_whenCreateEmployee_thenReturn503() throws Exception {
+        // given - precondition or setup
+        given(writeBehindQueue.enqueueCreate(any(Employee.class))).willReturn(false);
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+
+                // then - verify the output
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+    }
+}
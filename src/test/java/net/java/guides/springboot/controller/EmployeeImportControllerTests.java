@@ -0,0 +1,127 @@
+package net.java.guides.springboot.controller;
+
+import net.java.guides.springboot.exception.ResourceNotFoundException;
+import net.java.guides.springboot.model.EmployeeImport;
+import net.java.guides.springboot.service.impl.EmployeeImporter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(EmployeeImportController.class)
+public class EmployeeImportControllerTests {
+    private static final String ID = "0b6c8a4e-2f1d-4c3b-9a8e-7d6f5e4c3b2a";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private EmployeeImporter importer;
+
+    @DisplayName("Junit test for creating an import REST API")
+    @Test
+    public void givenFormat_whenCreateImport_thenReturnIdAndLocation() throws Exception {
+        // given - precondition or setup
+        given(importer.createImport("csv")).willReturn(employeeImport(EmployeeImport.Status.CREATED, null));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(post("/api/employees/imports").param("format", "csv"));
+
+        // then - verify the output - the client can poll, or resume, before sending any input
+        response.andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/api/employees/imports/" + ID))
+                .andExpect(jsonPath("$.id", is(ID)))
+                .andExpect(jsonPath("$.status", is("CREATED")));
+    }
+
+    @DisplayName("Junit test for the CSV upload of a created import REST API")
+    @Test
+    public void givenCreatedImport_whenUploadCsv_thenReturnCompletedImport() throws Exception {
+        // given - precondition or setup
+        given(importer.runImport(eq(ID), any(), eq("csv"))).willReturn(employeeImport(EmployeeImport.Status.COMPLETED, null));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(post("/api/employees/imports/{id}", ID)
+                .contentType("text/csv")
+                .content("firstName,lastName,email\nDjibril,Thiandoum,dgthian@gmail.com\n"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(ID)))
+                .andExpect(jsonPath("$.status", is("COMPLETED")))
+                .andExpect(jsonPath("$.imported", is(1000)));
+    }
+
+    @DisplayName("Junit test for a failed NDJSON upload REST API")
+    @Test
+    public void givenImportFails_whenUploadNdjson_thenReturnFailedImportToResume() throws Exception {
+        // given - precondition or setup
+        given(importer.runImport(eq(ID), any(), eq("ndjson"))).willReturn(employeeImport(EmployeeImport.Status.FAILED, "database down"));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(post("/api/employees/imports/{id}", ID)
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"firstName\":\"Djibril\",\"lastName\":\"Thiandoum\",\"email\":\"dgthian@gmail.com\"}\n"));
+
+        // then - verify the output
+        response.andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.id", is(ID)))
+                .andExpect(jsonPath("$.error", is("database down")));
+    }
+
+    @DisplayName("Junit test for resuming an unknown import REST API")
+    @Test
+    public void givenUnknownImport_whenResume_thenNotFound() throws Exception {
+        // given - precondition or setup
+        given(importer.runImport(eq(ID), any(), eq("csv"))).willThrow(new ResourceNotFoundException("Import not found with id:" + ID));
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(post("/api/employees/imports/{id}", ID)
+                .contentType("text/csv")
+                .content("firstName,lastName,email\n"));
+
+        // then - verify the output
+        response.andExpect(status().isNotFound());
+    }
+
+    @DisplayName("Junit test for the import progress REST API")
+    @Test
+    public void givenImport_whenGetImport_thenReturnProgress() throws Exception {
+        // given - precondition or setup
+        given(importer.getImport(ID)).willReturn(Optional.of(employeeImport(EmployeeImport.Status.RUNNING, null)));
+        given(importer.getImport("unknown")).willReturn(Optional.empty());
+
+        // when - action or the behavior that wa are going to test
+        ResultActions response = mockMvc.perform(get("/api/employees/imports/{id}", ID));
+        ResultActions unknown = mockMvc.perform(get("/api/employees/imports/{id}", "unknown"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("RUNNING")))
+                .andExpect(jsonPath("$.rows", is(1000)));
+        unknown.andExpect(status().isNotFound());
+    }
+
+    private static EmployeeImport employeeImport(EmployeeImport.Status status, String error) {
+        Instant now = Instant.now();
+        return new EmployeeImport(ID, "csv", status, 1000, 1000, 0, error, now, now);
+    }
+}
@@ -0,0 +1,177 @@
+package net.java.guides.springboot.controller;
+
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.ReactiveEmployeeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@WebFluxTest(ReactiveEmployeeController.class)
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeControllerTests {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveEmployeeService employeeService;
+
+    @Test
+    public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee() {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build();
+        given(employeeService.saveEmployee(any(Employee.class)))
+                .willAnswer((invocation) -> Mono.just(invocation.getArgument(0)));
+
+        // when - action or behavior we are going test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange();
+
+        // then -verify the result or output using assert statements
+        response.expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo(employee.getFirstName())
+                .jsonPath("$.email").isEqualTo(employee.getEmail());
+    }
+
+    // Junit test for streaming all employees as NDJSON
+    @Test
+    public void givenListOfEmployees_whenGetAllEmployeesAsNdjson_thenStreamEmployees() {
+        // given - precondition or setup
+        given(employeeService.getAllEmployees()).willReturn(Flux.just(
+                Employee.builder().id(1L).firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build(),
+                Employee.builder().id(2L).firstName("Awa").lastName("Ndiaye").email("awa.thiandoum@ndiaye.com").build()));
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Employee.class).hasSize(2);
+    }
+
+    @Test
+    public void givenInvalidEmployeeId_whenGetEmployeeById_thenReturn404() {
+        // given - precondition or setup
+        given(employeeService.getEmployeeById(1L)).willReturn(Mono.empty());
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.get().uri("/api/employees/{id}", 1L).exchange();
+
+        // then - verify the output
+        response.expectStatus().isNotFound();
+    }
+
+    @Test
+    public void givenUnknownEmployee_whenUpdateEmployee_thenReturn404() {
+        // given - precondition or setup
+        given(employeeService.updateEmployee(any(Employee.class))).willReturn(Mono.empty());
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isNotFound();
+    }
+
+    @Test
+    public void givenEmployeeWithoutVersion_whenUpdateEmployee_thenReturnPersistedVersion() {
+        // given - precondition or setup
+        Employee employee = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").build();
+        given(employeeService.updateEmployee(any(Employee.class)))
+                .willAnswer(invocation -> Mono.just(invocation.<Employee>getArgument(0).toBuilder().version(4L).build()));
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(1)
+                .jsonPath("$.version").isEqualTo(4);
+    }
+
+    @Test
+    public void givenMissingField_whenUpdateEmployee_thenReturn400() {
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").email("awa@gmail.com").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isBadRequest();
+        verify(employeeService, never()).updateEmployee(any(Employee.class));
+    }
+
+    @Test
+    public void givenStaleVersion_whenUpdateEmployee_thenReturn409() {
+        // given - precondition or setup
+        given(employeeService.updateEmployee(any(Employee.class)))
+                .willReturn(Mono.error(new OptimisticLockingFailureException("Employee 1 was modified concurrently")));
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").version(3L).build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void givenDuplicateEmail_whenUpdateEmployee_thenReturn409() {
+        // given - precondition or setup
+        given(employeeService.updateEmployee(any(Employee.class)))
+                .willReturn(Mono.error(new DuplicateEmailException("Employee already exist with given email:awa@gmail.com")));
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void givenUnknownEmployee_whenDeleteEmployee_thenReturn404() {
+        // given - precondition or setup
+        given(employeeService.deleteEmployee(1L)).willReturn(Mono.just(false));
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.delete().uri("/api/employees/{id}", 1L).exchange();
+
+        // then - verify the output
+        response.expectStatus().isNotFound();
+    }
+}
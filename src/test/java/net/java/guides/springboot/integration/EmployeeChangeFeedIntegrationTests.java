@@ -0,0 +1,169 @@
+package net.java.guides.springboot.integration;
+
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.repository.EmployeeChangeRepository;
+import net.java.guides.springboot.service.impl.EmployeeChangeStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// outbox, relay and SSE feed on an in-memory H2 database; a ring buffer of 2 events so that older ones are
+// caught up from the outbox table
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:changes;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "employee.changes.buffer-size=2"
+})
+@AutoConfigureMockMvc
+public class EmployeeChangeFeedIntegrationTests {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeChangeStream changeStream;
+
+    @Autowired
+    private EmployeeChangeRepository changeRepository;
+
+    @DisplayName("Junit test for the change events of a create, a patch and a delete, in order")
+    @Test
+    public void givenEmployeeWrites_whenSubscribe_thenOneEventPerWriteInOrder() throws Exception {
+        // given - precondition or setup
+        long since = changeStream.lastSequence();
+        long id = createEmployee("Djibril", "dgthian@gmail.com");
+        mockMvc.perform(patch("/api/employees/{id}", id)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"lastName\": \"Ndiaye\"}"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/employees/{id}", id)).andExpect(status().isNoContent());
+
+        // when - action or the behavior that wa are going to test
+        BlockingQueue<EmployeeChange> received = new LinkedBlockingQueue<>();
+        EmployeeChangeStream.Subscription subscription = changeStream.subscribe(since, new EmployeeChangeStream.Listener() {
+            @Override
+            public void onChanges(List<EmployeeChange> changes) {
+                received.addAll(changes);
+            }
+
+            @Override
+            public void onExpired() {
+            }
+        });
+        List<EmployeeChange> changes = take(received, 3);
+        subscription.cancel();
+
+        // then - verify the output - the first one is older than the buffer, read back from the outbox
+        assertThat(changes).extracting(EmployeeChange::getSequence).containsExactly(since + 1, since + 2, since + 3);
+        assertThat(changes).extracting(EmployeeChange::getType)
+                .containsExactly(EmployeeChange.Type.CREATED, EmployeeChange.Type.UPDATED, EmployeeChange.Type.DELETED);
+        assertThat(changes).extracting(EmployeeChange::getEmployeeId).containsOnly(id);
+        assertThat(changes).extracting(EmployeeChange::getLastName).containsExactly("Thiandoum", "Ndiaye", "Ndiaye");
+        assertThat(changes).extracting(EmployeeChange::getEmployeeVersion).containsExactly(0L, 1L, 1L);
+    }
+
+    @DisplayName("Junit test for the server-sent events of the change feed REST API")
+    @Test
+    public void givenSince_whenGetChanges_thenEventsAfterItStreamed() throws Exception {
+        // given - precondition or setup
+        long since = changeStream.lastSequence() + 1;
+        long id = createEmployee("Awa", "awa.ndiaye@gmail.com");
+        awaitRelayed(since);
+
+        // when - action or the behavior that wa are going to test
+        MvcResult result = mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(since))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        long created = createEmployee("Omar", "omar.sy@gmail.com");
+
+        // then - verify the output
+        String events = awaitContent(result, "\"email\":\"omar.sy@gmail.com\"");
+        assertThat(events).startsWith("id:" + (since + 1) + "\ndata:{");
+        assertThat(events).contains("\"employeeId\":" + created, "\"type\":\"CREATED\"");
+        assertThat(events).doesNotContain("\"employeeId\":" + id + ",");
+        assertThat(result.getResponse().getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    @DisplayName("Junit test for the change feed REST API when the events after since were purged")
+    @Test
+    public void givenPurgedEvents_whenGetChanges_thenGone() throws Exception {
+        // given - precondition or setup
+        long since = changeStream.lastSequence();
+        for (int i = 0; i < 3; i++) {
+            createEmployee("Fatou", "fatou.fall" + i + "@gmail.com");
+        }
+        awaitRelayed(since + 3);
+        changeRepository.deleteAll(changeRepository.findBySequenceGreaterThanOrderBySequenceAsc(since, Pageable.unpaged()).subList(0, 1));
+
+        // when - action or the behavior that wa are going to test
+        // then - verify the output
+        mockMvc.perform(get("/api/employees/changes").param("since", Long.toString(since))
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/api/employees/changes").param("since", "-1")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long createEmployee(String firstName, String email) throws Exception {
+        String body = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"firstName\":\"" + firstName + "\",\"lastName\":\"Thiandoum\",\"email\":\"" + email + "\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.parseLong(body.replaceAll(".*\"id\":(\\d+).*", "$1"));
+    }
+
+    private void awaitRelayed(long sequence) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (changeStream.lastSequence() < sequence && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(changeStream.lastSequence()).isGreaterThanOrEqualTo(sequence);
+    }
+
+    private static String awaitContent(MvcResult result, String expected) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!result.getResponse().getContentAsString().contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(result.getResponse().getContentAsString()).contains(expected);
+        return result.getResponse().getContentAsString();
+    }
+
+    private static List<EmployeeChange> take(BlockingQueue<EmployeeChange> queue, int count) throws InterruptedException {
+        List<EmployeeChange> taken = new ArrayList<>();
+        while (taken.size() < count) {
+            EmployeeChange change = queue.poll(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            assertThat(change).as("change %d of %d", taken.size() + 1, count).isNotNull();
+            taken.add(change);
+        }
+        return taken;
+    }
+}
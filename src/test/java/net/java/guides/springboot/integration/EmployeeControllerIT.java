@@ -1,6 +1,7 @@
 package net.java.guides.springboot.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
 import net.java.guides.springboot.model.Employee;
 import net.java.guides.springboot.repository.EmployeeRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,22 +14,28 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.testcontainers.containers.MySQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import java.util.ArrayList;
 import java.util.List;
+import static net.java.guides.springboot.support.StatementCountMatchers.statements;
+import static net.java.guides.springboot.support.StatementCountMatchers.statementsAtMost;
 import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// the tests seed and clean the table through the repository, which the employee cache would not see
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "employee.cache.enabled=false")
 @AutoConfigureMockMvc
 public class EmployeeControllerIT extends AbstractContainerBaseTest{
    //Mocking service in not required i integration Test
@@ -41,6 +48,9 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
 
     @BeforeEach
     void setup() {
@@ -81,7 +91,10 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
         employeeRepository.saveAll(listOfEmployees);
 
         // when - action or the behavior that wa are going to test
-        ResultActions response = mockMvc.perform(get("/api/employees"));
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        ResultActions response = mockMvc.perform(asyncDispatch(mvcResult));
 
         // then - verify the output
         response.andExpect(status().isOk())
@@ -107,6 +120,7 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
         // then - verify the output
         response.andExpect(status().isOk())
                 .andDo(print())
+                .andExpect(statementsAtMost(1))
                 .andExpect(jsonPath("$.firstName", is(employee.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(employee.getLastName())))
                 .andExpect(jsonPath("$.email", is(employee.getEmail())));
@@ -157,12 +171,13 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updatedEmployee)));
 
-        // then - verify the output
+        // then - verify the output - no version was sent, the persisted one comes back
         response.andExpect(status().isOk())
                 .andDo(print())
                 .andExpect(jsonPath("$.firstName", is(updatedEmployee.getFirstName())))
                 .andExpect(jsonPath("$.lastName", is(updatedEmployee.getLastName())))
-                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())));
+                .andExpect(jsonPath("$.email", is(updatedEmployee.getEmail())))
+                .andExpect(jsonPath("$.version", is(1)));
     }
 
 
@@ -196,7 +211,7 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
     // Junit test for delete employee REST API
     @DisplayName("Junit test for delete employee REST API")
     @Test
-    public void givenEmployeeId_whenDeleteEmployee_thenReturn200() throws Exception {
+    public void givenEmployeeId_whenDeleteEmployee_thenReturn204() throws Exception {
         // given - precondition or setup
         Employee savedEmployee = Employee.builder()
                 .firstName("Djibril")
@@ -204,12 +219,16 @@ public class EmployeeControllerIT extends AbstractContainerBaseTest{
                 .email("dgthiand@gmail.com")
                 .build();
         employeeRepository.save(savedEmployee);
+        // no second-level cache hit to hide a SELECT before the DELETE
+        entityManagerFactory.getCache().evictAll();
 
         // when - action or the behavior that wa are going to test
         ResultActions response = mockMvc.perform(delete("/api/employees/{id}", savedEmployee.getId()));
 
         // then - verify the output
-        response.andExpect(status().isOk())
+        // the DELETE, and the INSERT ... SELECT of the change feed event
+        response.andExpect(status().isNoContent())
+                .andExpect(statements(2))
                 .andDo(print());
     }
 }
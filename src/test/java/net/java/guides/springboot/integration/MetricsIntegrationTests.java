@@ -0,0 +1,104 @@
+package net.java.guides.springboot.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static net.java.guides.springboot.support.StatementCountMatchers.statements;
+import static net.java.guides.springboot.support.StatementCountMatchers.statementsAtMost;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// servlet stack on an in-memory H2 database, checks what the Prometheus scrape exposes after a few requests
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+public class MetricsIntegrationTests {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setup() {
+        employeeRepository.deleteAll();
+    }
+
+    @DisplayName("Junit test for the Prometheus scrape endpoint")
+    @Test
+    public void givenEmployeeRequests_whenScrapePrometheus_thenLatencyCountersAndPoolMetricsExposed() throws Exception {
+        // given - precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build());
+        mockMvc.perform(get("/api/employees/{id}", employee.getId())).andExpect(status().isOk());
+        mockMvc.perform(get("/api/employees/{id}", Long.MAX_VALUE)).andExpect(status().isNotFound());
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(get("/actuator/prometheus"))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("http_server_requests_seconds_bucket")))
+                .andExpect(content().string(containsString("employee_service_seconds_bucket")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_bucket")))
+                .andExpect(content().string(containsString("employee_rejections_total{operation=\"get\",reason=\"not_found\",}")))
+                .andExpect(content().string(containsString("employee_request_statements_count{method=\"GET\",uri=\"/api/employees/{id}\",}")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")))
+                .andExpect(content().string(containsString("hibernate_statements_total")));
+    }
+
+    @DisplayName("Junit test for the SQL statements issued per request")
+    @Test
+    public void givenEmployee_whenGetPatchDelete_thenOneWriteStatementEachPlusTheChangeEvent() throws Exception {
+        // given - precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build());
+
+        // when - action or the behavior that wa are going to test
+        mockMvc.perform(get("/api/employees/{id}", employee.getId()))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(statementsAtMost(1));
+        // the writes must not depend on the employee being in the second-level cache
+        entityManagerFactory.getCache().evictAll();
+        mockMvc.perform(patch("/api/employees/{id}", employee.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"lastName\": \"Ndiaye\"}"))
+                .andExpect(status().isNoContent())
+                // the UPDATE, the read back of the new version, and the INSERT ... SELECT of the change feed event
+                .andExpect(statements(3));
+        entityManagerFactory.getCache().evictAll();
+        mockMvc.perform(delete("/api/employees/{id}", employee.getId()))
+                .andExpect(status().isNoContent())
+                // the DELETE, and the INSERT ... SELECT of the change feed event
+                .andExpect(statements(2));
+    }
+}
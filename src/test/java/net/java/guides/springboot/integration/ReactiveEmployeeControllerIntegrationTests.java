@@ -0,0 +1,157 @@
+package net.java.guides.springboot.integration;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+// WebFlux + R2DBC stack end to end; JDBC (schema, seeding) and R2DBC share one in-memory H2 database
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive?options=MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeControllerIntegrationTests {
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @BeforeEach
+    void setup() {
+        employeeRepository.deleteAll();
+    }
+
+    @Test
+    public void givenEmployeeObject_whenCreateEmployee_thenReturnSavedEmployee() {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthian@gmail.com")
+                .build();
+
+        // when - action or behavior we are going test
+        Employee savedEmployee = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(employee)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Employee.class)
+                .returnResult()
+                .getResponseBody();
+
+        // then -verify the result or output using assert statements
+        webTestClient.get().uri("/api/employees/{id}", savedEmployee.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(employee.getEmail());
+    }
+
+    // ids allocated by the reactive stack must not collide with the ones Hibernate allocates
+    @Test
+    public void givenEmployeesSavedThroughJpa_whenCreateEmployee_thenIdsDoNotCollide() {
+        // given - precondition or setup
+        Employee jpaEmployee = employeeRepository.save(Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build());
+
+        // when - action or behavior we are going test
+        webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build())
+                .exchange()
+                .expectStatus().isCreated();
+        Employee secondJpaEmployee = employeeRepository.save(Employee.builder()
+                .firstName("Moussa")
+                .lastName("Diop")
+                .email("moussa.diop@gmail.com")
+                .build());
+
+        // then - verify the output
+        webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Employee.class).hasSize(3);
+        webTestClient.get().uri("/api/employees/{id}", jpaEmployee.getId())
+                .exchange()
+                .expectBody().jsonPath("$.email").isEqualTo("awa.ndiaye@gmail.com");
+        webTestClient.get().uri("/api/employees/{id}", secondJpaEmployee.getId())
+                .exchange()
+                .expectBody().jsonPath("$.email").isEqualTo("moussa.diop@gmail.com");
+    }
+
+    @Test
+    public void givenExistingEmail_whenCreateEmployee_thenReturn409() {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder()
+                .firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build());
+
+        // when - action or behavior we are going test
+        WebTestClient.ResponseSpec response = webTestClient.post().uri("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").lastName("Ndiaye").email("dgthian@gmail.com").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    public void givenSavedEmployee_whenUpdateEmployee_thenReturnUpdatedEmployee() {
+        // given - precondition or setup
+        Employee savedEmployee = employeeRepository.save(Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("dgthiand@gmail.com")
+                .build());
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.put().uri("/api/employees/{id}", savedEmployee.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").build())
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("Awa")
+                .jsonPath("$.email").isEqualTo("awa@gmail.com");
+    }
+
+    @Test
+    public void givenSavedEmployees_whenDeleteEmployees_thenReturnDeletedCount() {
+        // given - precondition or setup
+        Employee first = employeeRepository.save(Employee.builder()
+                .firstName("Djibril").lastName("Thiandoum").email("dgthiand@gmail.com").build());
+        Employee second = employeeRepository.save(Employee.builder()
+                .firstName("Awa").lastName("Ndiaye").email("awa@gmail.com").build());
+
+        // when - action or the behavior that wa are going to test
+        WebTestClient.ResponseSpec response = webTestClient.delete()
+                .uri("/api/employees?ids={first},{second},{missing}", first.getId(), second.getId(), second.getId() + 100)
+                .exchange();
+
+        // then - verify the output
+        response.expectStatus().isOk()
+                .expectBody().jsonPath("$.deleted").isEqualTo(2);
+        webTestClient.delete().uri("/api/employees/{id}", first.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
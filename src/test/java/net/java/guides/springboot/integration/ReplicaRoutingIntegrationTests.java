@@ -0,0 +1,99 @@
+package net.java.guides.springboot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.Cookie;
+import net.java.guides.springboot.config.ReadYourWritesFilter;
+import net.java.guides.springboot.config.ReplicaLagProbe;
+import net.java.guides.springboot.model.Employee;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the replica is a second, empty H2 database that never receives the primary's writes: an employee is only found
+// when the read was routed to the primary
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "employee.datasource.replicas.enabled=true",
+        "employee.datasource.replicas.urls=" + ReplicaRoutingIntegrationTests.REPLICA_URL,
+        "employee.datasource.replicas.probe-interval=1h",
+        "employee.datasource.replicas.max-lag=1h",
+        "employee.cache.enabled=false",
+        "employee.second-level-cache.enabled=false"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIntegrationTests {
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TestConfiguration
+    static class LagProbeConfig {
+
+        @Bean
+        public ReplicaLagProbe lagProbe() {
+            return connection -> Duration.ZERO;
+        }
+    }
+
+    @BeforeAll
+    static void createReplicaSchema() throws SQLException {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("create table if not exists employees (id bigint primary key, first_name varchar(255) not null, "
+                    + "last_name varchar(255) not null, email varchar(255) not null, version bigint not null)");
+        }
+    }
+
+    @DisplayName("Junit test for reads after a write staying on the primary for the writing client only")
+    @Test
+    public void givenSavedEmployee_whenGetEmployeeById_thenOnlyWriterReadsFromPrimary() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstName("Ramesh")
+                .lastName("Fadatare")
+                .email("ramesh.replica@gmail.com")
+                .build();
+        MvcResult created = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie readAfter = created.getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+        long id = objectMapper.readValue(created.getResponse().getContentAsString(), Employee.class).getId();
+
+        // when - action or the behavior that wa are going to test
+        int writerStatus = mockMvc.perform(get("/api/employees/{id}", id).cookie(readAfter)).andReturn().getResponse().getStatus();
+        int otherClientStatus = mockMvc.perform(get("/api/employees/{id}", id)).andReturn().getResponse().getStatus();
+
+        // then - verify the output
+        assertThat(readAfter).isNotNull();
+        assertThat(writerStatus).isEqualTo(200);
+        assertThat(otherClientStatus).isEqualTo(404);
+    }
+}
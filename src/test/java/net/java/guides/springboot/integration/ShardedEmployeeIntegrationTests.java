@@ -0,0 +1,77 @@
+package net.java.guides.springboot.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.ShardedEmployeeRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the 'sharded' profile on three in-memory H2 shards, the application database only holds the directory
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sharding-directory;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "employee.sharding.shards=jdbc:h2:mem:shard-0;MODE=MySQL;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard-1;MODE=MySQL;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard-2;MODE=MySQL;DB_CLOSE_DELAY=-1"
+})
+@ActiveProfiles("sharded")
+@AutoConfigureMockMvc
+public class ShardedEmployeeIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ShardedEmployeeRepository employeeRepository;
+
+    @DisplayName("Junit test for employees saved across shards and read back through the API")
+    @Test
+    public void givenEmployeesOnShards_whenGetAndDuplicateEmail_thenFoundAndConflict() throws Exception {
+        // given - precondition or setup
+        List<Employee> employees = List.of(
+                Employee.builder().firstName("Ramesh").lastName("Fadatare").email("ramesh.sharded@gmail.com").build(),
+                Employee.builder().firstName("Tony").lastName("Stark").email("tony.sharded@gmail.com").build(),
+                Employee.builder().firstName("John").lastName("Cena").email("john.sharded@gmail.com").build());
+        for (Employee employee : employees) {
+            mockMvc.perform(post("/api/employees")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(employee)))
+                    .andExpect(status().isCreated());
+        }
+        Employee saved = employeeRepository.findByEmail("tony.sharded@gmail.com").orElseThrow();
+
+        // when - action or the behavior that wa are going to test
+        // then - verify the output
+        mockMvc.perform(get("/api/employees/{id}", saved.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Stark"));
+        mockMvc.perform(get("/api/employees").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)));
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Employee.builder()
+                                .firstName("Anthony").lastName("Stark").email("tony.sharded@gmail.com").build())))
+                .andExpect(status().isConflict());
+        assertThat(employeeRepository.findAllOrderById()).hasSize(3);
+    }
+}
@@ -1,22 +1,45 @@
 package net.java.guides.springboot.repository;
 
+import net.java.guides.springboot.exception.DuplicateEmailException;
 import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.model.EmployeeEmail;
+import net.java.guides.springboot.model.EmployeeName;
+import net.java.guides.springboot.support.RecordingStatementInspector;
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
-
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
-@DataJpaTest
+// the statement inspector records the SQL the finders generate, for the query plan test
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "net.java.guides.springboot.support.RecordingStatementInspector")
 public class EmployeeRepositoryTests {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EmployeeChangeRepository changeRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
     private Employee employee ;
 
     @BeforeEach
@@ -245,5 +268,273 @@ public class EmployeeRepositoryTests {
         assertThat(savedEmployee).isNotNull();
     }
 
+    // Junit test for keyset pagination query
+    @DisplayName("Junit test for keyset pagination query")
+    @Test
+    public void givenEmployeesList_whenFindByIdGreaterThan_thenReturnNextPageOrderedById() {
+        // given - precondition or setup
+        Employee employee2 = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build();
+        Employee employee3 = Employee.builder()
+                .firstName("Moussa")
+                .lastName("Diop")
+                .email("moussa.diop@gmail.com")
+                .build();
+        employeeRepository.save(employee);
+        employeeRepository.save(employee2);
+        employeeRepository.save(employee3);
+
+        // when - action or the behavior that wa are going to test
+        List<Employee> page = employeeRepository.findByIdGreaterThanOrderByIdAsc(employee.getId(), PageRequest.ofSize(1));
+
+        // then - verify the output
+        assertThat(page.size()).isEqualTo(1);
+        assertThat(page.get(0).getId()).isEqualTo(employee2.getId());
+    }
+
+    // Junit test for set-based duplicate email query
+    @DisplayName("Junit test for set-based duplicate email query")
+    @Test
+    public void givenSavedEmployee_whenFindExistingEmails_thenReturnOnlyTakenEmails() {
+        // given - precondition or setup
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that wa are going to test
+        List<String> existingEmails = employeeRepository.findExistingEmails(
+                List.of(employee.getEmail(), "awa.ndiaye@gmail.com"));
+
+        // then - verify the output
+        assertThat(existingEmails.size()).isEqualTo(1);
+        assertThat(existingEmails.get(0)).isEqualTo(employee.getEmail());
+    }
+
+    // Junit test for projected keyset pagination
+    @DisplayName("Junit test for projected keyset pagination")
+    @Test
+    public void givenSavedEmployees_whenFindProjectedPage_thenReturnOnlySelectedColumns() {
+        // given - precondition or setup
+        employeeRepository.save(employee);
+        employeeRepository.save(employee.toBuilder().id(null).version(null).firstName("Awa").email("awa.ndiaye@gmail.com").build());
+
+        // when - action or the behavior that wa are going to test
+        List<EmployeeEmail> emails = employeeRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(10), EmployeeEmail.class);
+        List<EmployeeName> names = employeeRepository.findByIdGreaterThanOrderByIdAsc(employee.getId(), PageRequest.ofSize(10), EmployeeName.class);
+
+        // then - verify the output
+        assertThat(emails.size()).isEqualTo(2);
+        assertThat(emails.get(0)).isEqualTo(new EmployeeEmail(employee.getId(), employee.getEmail()));
+        assertThat(names.size()).isEqualTo(1);
+        assertThat(names.get(0).firstName()).isEqualTo("Awa");
+    }
+
+    // Junit test for paginated name finders
+    @DisplayName("Junit test for paginated name finders returning every match")
+    @Test
+    public void givenEmployeesWithSameName_whenFindByName_thenReturnPage() {
+        // given - precondition or setup
+        employeeRepository.save(employee);
+        employeeRepository.save(employee.toBuilder().id(null).version(null).email("djibril.t@gmail.com").build());
+        employeeRepository.save(employee.toBuilder().id(null).version(null).email("d.thiandoum@gmail.com").build());
+
+        // when - action or the behavior that wa are going to test
+        List<Employee> firstPage = employeeRepository.findByLastNameAndFirstNameOrderByIdAsc("Thiandoum", "Djibril", PageRequest.of(0, 2));
+        List<Employee> jpqlSecondPage = employeeRepository.findByJPQL("Djibril", "Thiandoum", PageRequest.of(1, 2));
+        List<Employee> nativeAll = employeeRepository.findByNativeSQL("Djibril", "Thiandoum", PageRequest.of(0, 10));
+        List<Employee> jpqlNamedFirstPage = employeeRepository.findByJPQLNamedParams("Djibril", "Thiandoum", PageRequest.of(0, 2));
+        List<Employee> nativeNamedSecondPage = employeeRepository.findByNativeSQLNamedParams("Djibril", "Thiandoum", PageRequest.of(1, 2));
+
+        // then - verify the output
+        assertThat(firstPage.size()).isEqualTo(2);
+        assertThat(firstPage.get(0).getId()).isEqualTo(employee.getId());
+        assertThat(jpqlSecondPage.size()).isEqualTo(1);
+        assertThat(nativeAll.size()).isEqualTo(3);
+        assertThat(jpqlNamedFirstPage.size()).isEqualTo(2);
+        assertThat(nativeNamedSecondPage.size()).isEqualTo(1);
+    }
+
+    // Junit test for the query plan of the name finders
+    @DisplayName("Junit test for the name finders using the (last_name, first_name) index")
+    @Test
+    public void givenNameFilter_whenExplain_thenNameIndexIsUsed() {
+        // given - precondition or setup - the SQL the finder behind GET /api/employees?firstName=&lastName= generates
+        employeeRepository.saveAndFlush(employee);
+        RecordingStatementInspector.clear();
+        employeeRepository.findByLastNameAndFirstNameOrderByIdAsc("Thiandoum", "Djibril", PageRequest.of(0, 10));
+        List<String> statements = RecordingStatementInspector.statements();
+        assertThat(statements.size()).isEqualTo(1);
+
+        // when - action or the behavior that wa are going to test
+        String plan = entityManager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement explain = connection.prepareStatement("explain " + statements.get(0))) {
+                // bound in the order of the finder's parameters: last name, first name, then the page size
+                explain.setString(1, "Thiandoum");
+                explain.setString(2, "Djibril");
+                for (int i = 3; i <= explain.getParameterMetaData().getParameterCount(); i++) {
+                    explain.setInt(i, 10);
+                }
+                try (ResultSet resultSet = explain.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+
+        // then - verify the output
+        assertThat(plan.toLowerCase()).contains(Employee.NAME_INDEX);
+    }
+
+    // Junit test for the unique index on email
+    @DisplayName("Junit test for the unique index on email")
+    @Test
+    public void givenSavedEmail_whenSaveSameEmail_thenConstraintViolation() {
+        // given - precondition or setup
+        employeeRepository.saveAndFlush(employee);
+        Employee sameEmail = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email(employee.getEmail())
+                .build();
+
+        // when - action or the behavior that wa are going to test
+        DataIntegrityViolationException exception = assertThrows(DataIntegrityViolationException.class,
+                () -> employeeRepository.saveAndFlush(sameEmail));
+
+        // then - verify the output
+        assertThat(DuplicateEmailException.isEmailConstraintViolation(exception)).isTrue();
+    }
+
+    // Junit test for direct delete by id
+    @DisplayName("Junit test for direct delete by id")
+    @Test
+    public void givenSavedEmployee_whenDeleteEmployeeById_thenReturnDeletedCount() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        entityManager.clear();
+
+        // when - action or the behavior that wa are going to test
+        int deleted = employeeRepository.deleteEmployeeById(employee.getId());
+        int deletedAgain = employeeRepository.deleteEmployeeById(employee.getId());
+
+        // then - verify the output
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedAgain).isEqualTo(0);
+        assertThat(employeeRepository.findById(employee.getId())).isEmpty();
+    }
+
+    // Junit test for single-statement partial update
+    @DisplayName("Junit test for single-statement partial update")
+    @Test
+    public void givenSavedEmployee_whenUpdateFields_thenOnlyGivenFieldsAndVersionChange() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        entityManager.clear();
+
+        // when - action or the behavior that wa are going to test
+        Optional<Employee> updated = employeeRepository.updateFields(employee.getId(), Map.of("email", "awa.ndiaye@gmail.com"), 0L);
+        entityManager.clear();
+
+        // then - verify the output
+        Employee patchedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updated.get().getVersion()).isEqualTo(1L);
+        assertThat(patchedEmployee.getEmail()).isEqualTo("awa.ndiaye@gmail.com");
+        assertThat(patchedEmployee.getFirstName()).isEqualTo(employee.getFirstName());
+        assertThat(patchedEmployee.getVersion()).isEqualTo(1L);
+    }
+
+    // Junit test for partial update writing the values the employee already has
+    @DisplayName("Junit test for partial update without any actual change")
+    @Test
+    public void givenSameValues_whenUpdateFields_thenVersionStillBumped() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        entityManager.clear();
+
+        // when - action or the behavior that wa are going to test
+        employeeRepository.updateFields(employee.getId(), Map.of("firstName", employee.getFirstName()), 0L);
+        entityManager.clear();
+
+        // then - verify the output
+        assertThat(employeeRepository.findById(employee.getId()).get().getVersion()).isEqualTo(1L);
+    }
+
+    // Junit test for partial update with a stale version
+    @DisplayName("Junit test for partial update with a stale version")
+    @Test
+    public void givenStaleVersion_whenUpdateFields_thenNothingUpdated() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        employeeRepository.updateFields(employee.getId(), Map.of("firstName", "Awa"), 0L);
+        entityManager.clear();
 
+        // when - action or the behavior that wa are going to test
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> employeeRepository.updateFields(employee.getId(), Map.of("firstName", "Fatou"), 0L));
+        entityManager.clear();
+
+        // then - verify the output
+        assertThat(employeeRepository.updateFields(Long.MAX_VALUE, Map.of("firstName", "Fatou"), null)).isEmpty();
+        assertThat(employeeRepository.findById(employee.getId()).get().getFirstName()).isEqualTo("Awa");
+    }
+
+    // Junit test for partial update to an email already taken
+    @DisplayName("Junit test for partial update to an email already taken")
+    @Test
+    public void givenTakenEmail_whenUpdateFields_thenEmailConstraintViolation() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        Employee other = entityManager.persistAndFlush(Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build());
+
+        // when - action or the behavior that wa are going to test
+        DataIntegrityViolationException e = assertThrows(DataIntegrityViolationException.class,
+                () -> employeeRepository.updateFields(other.getId(), Map.of("email", employee.getEmail()), null));
+
+        // then - verify the output
+        assertThat(DuplicateEmailException.isEmailConstraintViolation(e)).isTrue();
+    }
+
+    // Junit test for the version lookup behind conditional GETs
+    @DisplayName("Junit test for findVersionById")
+    @Test
+    public void givenSavedEmployee_whenFindVersionById_thenReturnCurrentVersion() {
+        // given - precondition or setup
+        entityManager.persistAndFlush(employee);
+        employeeRepository.updateFields(employee.getId(), Map.of("firstName", "Awa"), 0L);
+
+        // when - action or the behavior that wa are going to test
+        Optional<Long> version = employeeRepository.findVersionById(employee.getId());
+        Optional<Long> missing = employeeRepository.findVersionById(Long.MAX_VALUE);
+
+        // then - verify the output
+        assertThat(version).contains(1L);
+        assertThat(missing).isEmpty();
+    }
+
+    // Junit test for the outbox lookup behind the collection ETag
+    @DisplayName("Junit test for findLatestChange")
+    @Test
+    public void givenRecordedChange_whenFindLatestChange_thenVersionMoves() {
+        // given - precondition or setup
+        String empty = changeRepository.findLatestChange();
+        entityManager.persistAndFlush(employee);
+        changeRepository.recordChanges(EmployeeChange.Type.CREATED, List.of(employee.getId()), Instant.now());
+        String created = changeRepository.findLatestChange();
+
+        // when - action or the behavior that wa are going to test - the relay numbers the event
+        EmployeeChange change = changeRepository.findAll().get(0);
+        change.setSequence(1L);
+        entityManager.persistAndFlush(change);
+        String relayed = changeRepository.findLatestChange();
+
+        // then - verify the output
+        assertThat(empty).isEqualTo("0-0");
+        assertThat(created).isNotEqualTo(empty);
+        assertThat(relayed).isNotEqualTo(created);
+    }
 }
@@ -0,0 +1,72 @@
+package net.java.guides.springboot.repository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// an in-memory H2 database per test, with the employees table of a database that predates the sequence
+public class EmployeeSequenceInitializerTests {
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setup() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:sequence_" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table employees (id bigint primary key)");
+    }
+
+    @DisplayName("Junit test for a new sequence on a table with existing ids")
+    @Test
+    public void givenExistingIds_whenInitialize_thenSequenceMovedPastThem() {
+        // given - precondition or setup
+        jdbcTemplate.execute("create sequence employees_seq start with 1 increment by 50");
+        jdbcTemplate.update("insert into employees (id) values (7), (120)");
+
+        // when - action or the behavior that wa are going to test
+        new EmployeeSequenceInitializer(dataSource, false).afterPropertiesSet();
+
+        // then - verify the output - the next block, (next - 50, next], starts after the highest id
+        Long next = jdbcTemplate.queryForObject("select next value for employees_seq", Long.class);
+        assertThat(next - 50 + 1).isEqualTo(121L);
+    }
+
+    @DisplayName("Junit test for the table emulating the sequence on MySQL")
+    @Test
+    public void givenSequenceTable_whenInitialize_thenOnlyRaised() {
+        // given - precondition or setup
+        jdbcTemplate.execute("create table employees_seq (next_val bigint)");
+        jdbcTemplate.update("insert into employees_seq (next_val) values (1)");
+        jdbcTemplate.update("insert into employees (id) values (120)");
+        EmployeeSequenceInitializer initializer = new EmployeeSequenceInitializer(dataSource, true);
+
+        // when - action or the behavior that wa are going to test
+        initializer.afterPropertiesSet();
+        jdbcTemplate.update("update employees_seq set next_val = 1000");
+        initializer.afterPropertiesSet();
+
+        // then - verify the output - a sequence already past the ids is left alone
+        assertThat(jdbcTemplate.queryForObject("select next_val from employees_seq", Long.class)).isEqualTo(1000L);
+    }
+
+    @DisplayName("Junit test for an empty table")
+    @Test
+    public void givenNoEmployees_whenInitialize_thenSequenceUnchanged() {
+        // given - precondition or setup
+        jdbcTemplate.execute("create table employees_seq (next_val bigint)");
+        jdbcTemplate.update("insert into employees_seq (next_val) values (1)");
+
+        // when - action or the behavior that wa are going to test
+        new EmployeeSequenceInitializer(dataSource, true).afterPropertiesSet();
+
+        // then - verify the output
+        assertThat(jdbcTemplate.queryForObject("select next_val from employees_seq", Long.class)).isEqualTo(1L);
+    }
+}
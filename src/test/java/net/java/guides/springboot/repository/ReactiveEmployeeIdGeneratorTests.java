@@ -0,0 +1,37 @@
+package net.java.guides.springboot.repository;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReactiveEmployeeIdGeneratorTests {
+
+    @DisplayName("Junit test for ids handed out from the block reserved by one sequence value")
+    @Test
+    public void givenSequenceValue_whenNextId_thenIdsComeFromPooledBlock() {
+        // given - precondition or setup
+        AtomicInteger sequenceCalls = new AtomicInteger();
+        ReactiveEmployeeIdGenerator idGenerator = new ReactiveEmployeeIdGenerator(() -> {
+            sequenceCalls.incrementAndGet();
+            return Mono.just(sequenceCalls.get() == 1 ? 101L : 151L);
+        });
+
+        // when - action or the behavior that wa are going to test
+        long first = idGenerator.nextId().block();
+        for (int i = 1; i < ReactiveEmployeeIdGenerator.ALLOCATION_SIZE - 1; i++) {
+            idGenerator.nextId().block();
+        }
+        long lastOfBlock = idGenerator.nextId().block();
+        long firstOfNextBlock = idGenerator.nextId().block();
+
+        // then - verify the output
+        assertThat(first).isEqualTo(52L);
+        assertThat(lastOfBlock).isEqualTo(101L);
+        assertThat(firstOfNextBlock).isEqualTo(102L);
+        assertThat(sequenceCalls.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,167 @@
+package net.java.guides.springboot.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import net.java.guides.springboot.config.SecondLevelCacheConfig;
+import net.java.guides.springboot.model.Employee;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// every repository call commits on its own, as in the application, so entries reach the cache
+@DataJpaTest
+@Import(SecondLevelCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTests {
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        employee = employeeRepository.save(Employee.builder()
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("djibril.thiandoum@gmail.com")
+                .build());
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        employeeRepository.deleteAll();
+    }
+
+    @DisplayName("Junit test for findById served from the second-level cache")
+    @Test
+    public void givenSavedEmployee_whenFindByIdTwice_thenSecondLevelCacheHit() {
+        // when - action or the behavior that wa are going to test
+        employeeRepository.findById(employee.getId());
+        employeeRepository.findById(employee.getId());
+
+        // then - verify the output
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @DisplayName("Junit test for findByEmail served from the query cache")
+    @Test
+    public void givenSavedEmployee_whenFindByEmailTwice_thenQueryCacheHit() {
+        // when - action or the behavior that wa are going to test
+        employeeRepository.findByEmail(employee.getEmail());
+        employeeRepository.findByEmail(employee.getEmail());
+
+        // then - verify the output
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for updates invalidating cached query results")
+    @Test
+    public void givenCachedQuery_whenEmployeeUpdated_thenQueryRunsAgain() {
+        // given - precondition or setup
+        employeeRepository.findByEmail(employee.getEmail());
+
+        // when - action or the behavior that wa are going to test
+        employee.setFirstName("Awa");
+        employeeRepository.save(employee);
+        Employee updatedEmployee = employeeRepository.findByEmail(employee.getEmail()).get();
+
+        // then - verify the output
+        assertThat(updatedEmployee.getFirstName()).isEqualTo("Awa");
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(2);
+    }
+
+    @DisplayName("Junit test for a partial update or a delete evicting only the employee written")
+    @Test
+    public void givenTwoCachedEmployees_whenOneUpdatedAndDeleted_thenOtherStillCached() {
+        // given - precondition or setup
+        Employee other = employeeRepository.save(Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build());
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        statistics.clear();
+
+        // when - action or the behavior that wa are going to test
+        transactions.executeWithoutResult(status ->
+                employeeRepository.updateFields(employee.getId(), Map.of("firstName", "Fatou"), null));
+        employeeRepository.findById(other.getId());
+        long statementsBeforeDelete = statistics.getPrepareStatementCount();
+        transactions.executeWithoutResult(status -> employeeRepository.deleteEmployeeById(employee.getId()));
+        long deleteStatements = statistics.getPrepareStatementCount() - statementsBeforeDelete;
+        employeeRepository.findById(other.getId());
+
+        // then - verify the output - the other employee is served from the cache both times, the only load is the
+        // read back after the UPDATE, and the DELETE is a single statement
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+        assertThat(deleteStatements).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for a partial update invalidating cached query results")
+    @Test
+    public void givenCachedQuery_whenEmailUpdatedByUpdateFields_thenQueryRunsAgain() {
+        // given - precondition or setup
+        employeeRepository.findByEmail(employee.getEmail());
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+
+        // when - action or the behavior that wa are going to test
+        transactions.executeWithoutResult(status ->
+                employeeRepository.updateFields(employee.getId(), Map.of("email", "fatou.diop@gmail.com"), null));
+
+        // then - verify the output
+        assertThat(employeeRepository.findByEmail(employee.getEmail())).isEmpty();
+        assertThat(statistics.getQueryCacheMissCount()).isEqualTo(2);
+    }
+
+    @DisplayName("Junit test for the full table stream leaving the second-level cache alone")
+    @Test
+    public void givenCachedEmployee_whenStreamAll_thenNothingPutIntoCache() {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build());
+        entityManagerFactory.getCache().evictAll();
+        TransactionTemplate transactions = new TransactionTemplate(transactionManager);
+        statistics.clear();
+
+        // when - action or the behavior that wa are going to test
+        long streamed = transactions.execute(status -> {
+            try (Stream<Employee> employees = employeeRepository.streamAllOrderById()) {
+                return employees.count();
+            }
+        });
+
+        // then - verify the output
+        assertThat(streamed).isEqualTo(2);
+        assertThat(statistics.getSecondLevelCachePutCount()).isZero();
+        assertThat(entityManagerFactory.getCache().contains(Employee.class, employee.getId())).isFalse();
+    }
+}
@@ -0,0 +1,288 @@
+package net.java.guides.springboot.repository;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeName;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// an in-memory H2 database for the directory and one per shard, all created from the db/sharding scripts
+public class ShardedEmployeeRepositoryTests {
+    private static final int SHARDS = 3;
+
+    private DataSource directory;
+    private List<DataSource> shards = new ArrayList<>();
+    private ShardedEmployeeRepository employeeRepository;
+
+    @BeforeEach
+    public void setup() {
+        // a fresh set of databases per test
+        String run = UUID.randomUUID().toString();
+        directory = h2("directory_" + run);
+        new ResourceDatabasePopulator(new ClassPathResource("db/sharding/directory.sql")).execute(directory);
+        for (int i = 0; i < SHARDS; i++) {
+            DataSource shard = h2("shard_" + i + "_" + run);
+            new ResourceDatabasePopulator(new ClassPathResource("db/sharding/shard.sql")).execute(shard);
+            shards.add(shard);
+        }
+        employeeRepository = new ShardedEmployeeRepository(directory, shards, 4);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        employeeRepository.close();
+    }
+
+    @DisplayName("Junit test for employees spread over every shard and read back by id")
+    @Test
+    public void givenSavedEmployees_whenFindById_thenEachOnItsShard() {
+        // given - precondition or setup
+        List<Employee> saved = employeeRepository.insertAll(employees(30, "Doe"));
+
+        // when - action or the behavior that we are going to test
+        List<Employee> found = saved.stream().map(employee -> employeeRepository.findById(employee.getId()).orElseThrow()).toList();
+
+        // then - verify the output
+        assertThat(found).extracting(Employee::getEmail).containsExactlyElementsOf(saved.stream().map(Employee::getEmail).toList());
+        for (int i = 0; i < SHARDS; i++) {
+            long rows = new JdbcTemplate(shards.get(i)).queryForObject("select count(*) from employees", Long.class);
+            assertThat(rows).isPositive();
+        }
+        assertThat(saved).allSatisfy(employee -> assertThat(new JdbcTemplate(shards.get(employeeRepository.shardOf(employee.getId())))
+                .queryForObject("select count(*) from employees where id = ?", Long.class, employee.getId())).isEqualTo(1L));
+    }
+
+    @DisplayName("Junit test for globally unique ids across single and batch inserts")
+    @Test
+    public void givenSingleAndBatchInserts_whenSave_thenIdsUnique() {
+        // given - precondition or setup
+        Set<Long> ids = new HashSet<>();
+
+        // when - action or the behavior that we are going to test
+        employeeRepository.insertAll(employees(120, "Batch")).forEach(employee -> ids.add(employee.getId()));
+        for (int i = 0; i < 10; i++) {
+            ids.add(employeeRepository.insert(employee("Single", "single" + i + "@gmail.com")).getId());
+        }
+
+        // then - verify the output
+        assertThat(ids).hasSize(130);
+    }
+
+    @DisplayName("Junit test for findAll and keyset pages merged in id order")
+    @Test
+    public void givenEmployeesOnAllShards_whenFindAllAndPages_thenOrderedById() {
+        // given - precondition or setup
+        List<Long> ids = employeeRepository.insertAll(employees(25, "Doe")).stream().map(Employee::getId).sorted().toList();
+
+        // when - action or the behavior that we are going to test
+        List<Employee> all = employeeRepository.findAllOrderById();
+        List<Employee> page = employeeRepository.findByIdGreaterThanOrderByIdAsc(ids.get(4), 10);
+        List<EmployeeName> names = employeeRepository.findByIdGreaterThanOrderByIdAsc(ids.get(19), 10, EmployeeName.class);
+        List<Long> streamed = new ArrayList<>();
+        employeeRepository.streamAllOrderById(employee -> streamed.add(employee.getId()));
+
+        // then - verify the output
+        assertThat(all).extracting(Employee::getId).containsExactlyElementsOf(ids);
+        assertThat(page).extracting(Employee::getId).containsExactlyElementsOf(ids.subList(5, 15));
+        assertThat(names).extracting(EmployeeName::id).containsExactlyElementsOf(ids.subList(20, 25));
+        assertThat(names).extracting(EmployeeName::lastName).containsOnly("Doe");
+        assertThat(streamed).containsExactlyElementsOf(ids);
+    }
+
+    @DisplayName("Junit test for name pages gathered from all shards")
+    @Test
+    public void givenEmployeesWithName_whenFindByName_thenPagedInIdOrder() {
+        // given - precondition or setup
+        List<Long> ids = employeeRepository.insertAll(employees(12, "Doe")).stream().map(Employee::getId).sorted().toList();
+        employeeRepository.insertAll(employees(5, "Smith"));
+
+        // when - action or the behavior that we are going to test
+        List<Employee> firstPage = employeeRepository.findByLastNameAndFirstNameOrderByIdAsc("Doe", "John", 0, 5);
+        List<Employee> lastPage = employeeRepository.findByLastNameAndFirstNameOrderByIdAsc("Doe", "John", 10, 5);
+
+        // then - verify the output
+        assertThat(firstPage).extracting(Employee::getId).containsExactlyElementsOf(ids.subList(0, 5));
+        assertThat(lastPage).extracting(Employee::getId).containsExactlyElementsOf(ids.subList(10, 12));
+    }
+
+    @DisplayName("Junit test for an email taken by an employee on another shard")
+    @Test
+    public void givenEmailTaken_whenInsert_thenDuplicateKeyException() {
+        // given - precondition or setup
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+
+        // when - action or the behavior that we are going to test
+        // then - verify the output
+        for (int i = 0; i < SHARDS; i++) {
+            assertThatThrownBy(() -> employeeRepository.insert(employee("Other", "john@gmail.com")))
+                    .isInstanceOf(DuplicateKeyException.class);
+        }
+        assertThat(employeeRepository.findByEmail("john@gmail.com")).map(Employee::getId).contains(saved.getId());
+        assertThat(employeeRepository.findAllOrderById()).hasSize(1);
+        assertThat(employeeRepository.findExistingEmails(List.of("john@gmail.com", "jane@gmail.com"))).containsOnly("john@gmail.com");
+    }
+
+    @DisplayName("Junit test for an email taken in another case")
+    @Test
+    public void givenEmailTaken_whenInsertCaseVariant_thenDuplicateKeyException() {
+        // given - precondition or setup
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+        new JdbcTemplate(directory).update("update employee_emails set reserved_at = dateadd('MINUTE', -2, current_timestamp)");
+
+        // when - action or the behavior that we are going to test
+        // then - verify the output - a live holder is never taken over, however old its entry
+        assertThatThrownBy(() -> employeeRepository.insert(employee("Other", "John@Gmail.com")))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(employeeRepository.findByEmail("JOHN@gmail.com")).map(Employee::getId).contains(saved.getId());
+        assertThat(employeeRepository.findExistingEmails(List.of("John@Gmail.com"))).containsOnly("john@gmail.com");
+        assertThat(employeeRepository.findAllOrderById()).hasSize(1);
+    }
+
+    @DisplayName("Junit test for an email change of case only")
+    @Test
+    public void givenSavedEmployee_whenEmailCaseChanged_thenEmailStaysTaken() {
+        // given - precondition or setup
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+
+        // when - action or the behavior that we are going to test
+        int updated = employeeRepository.updateFields(saved.getId(), Map.of("email", "John@gmail.com"), saved.getVersion());
+
+        // then - verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(employeeRepository.findByEmail("john@gmail.com")).map(Employee::getEmail).contains("John@gmail.com");
+        assertThat(new JdbcTemplate(directory).queryForObject("select count(*) from employee_emails where employee_id = ?",
+                Long.class, saved.getId())).isEqualTo(1L);
+        assertThatThrownBy(() -> employeeRepository.insert(employee("Other", "JOHN@gmail.com")))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @DisplayName("Junit test for an email change freeing the old email")
+    @Test
+    public void givenEmailChanged_whenInsertOldEmail_thenSaved() {
+        // given - precondition or setup
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+
+        // when - action or the behavior that we are going to test
+        int updated = employeeRepository.updateFields(saved.getId(), Map.of("email", "johnny@gmail.com"), saved.getVersion());
+        Employee other = employeeRepository.insert(employee("Other", "john@gmail.com"));
+
+        // then - verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(employeeRepository.findById(saved.getId())).map(Employee::getVersion).contains(1L);
+        assertThat(employeeRepository.findByEmail("johnny@gmail.com")).map(Employee::getId).contains(saved.getId());
+        assertThat(employeeRepository.findByEmail("john@gmail.com")).map(Employee::getId).contains(other.getId());
+    }
+
+    @DisplayName("Junit test for an update with a stale version")
+    @Test
+    public void givenStaleVersion_whenUpdateFields_thenNothingUpdated() {
+        // given - precondition or setup
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+        employeeRepository.updateFields(saved.getId(), Map.of("firstName", "Johnny"), 0L);
+
+        // when - action or the behavior that we are going to test
+        int updated = employeeRepository.updateFields(saved.getId(), Map.of("email", "johnny@gmail.com"), 0L);
+
+        // then - verify the output
+        assertThat(updated).isZero();
+        assertThat(employeeRepository.findByEmail("johnny@gmail.com")).isEmpty();
+        assertThat(employeeRepository.findExistingEmails(List.of("johnny@gmail.com"))).isEmpty();
+        assertThat(employeeRepository.insert(employee("Other", "johnny@gmail.com")).getId()).isNotEqualTo(saved.getId());
+    }
+
+    @DisplayName("Junit test for deletes releasing the emails")
+    @Test
+    public void givenSavedEmployees_whenDelete_thenGoneAndEmailsFree() {
+        // given - precondition or setup
+        List<Employee> saved = employeeRepository.insertAll(employees(10, "Doe"));
+
+        // when - action or the behavior that we are going to test
+        int deleted = employeeRepository.deleteById(saved.get(0).getId());
+        int deletedBatch = employeeRepository.deleteByIdIn(saved.subList(1, 6).stream().map(Employee::getId).toList());
+        int deletedAgain = employeeRepository.deleteById(saved.get(0).getId());
+
+        // then - verify the output
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedBatch).isEqualTo(5);
+        assertThat(deletedAgain).isZero();
+        assertThat(employeeRepository.findAllOrderById()).hasSize(4);
+        assertThat(new JdbcTemplate(directory).queryForObject("select count(*) from employee_emails", Long.class)).isEqualTo(4L);
+        assertThat(employeeRepository.insertAll(saved.subList(0, 6).stream().map(employee -> employee("Again", employee.getEmail())).toList()))
+                .hasSize(6);
+    }
+
+    @DisplayName("Junit test for the collection version moving with writes from another instance")
+    @Test
+    public void givenWritesThroughAnotherInstance_whenFindVersion_thenVersionChanges() throws Exception {
+        // given - precondition or setup - a second application instance on the same databases
+        try (ShardedEmployeeRepository otherInstance = new ShardedEmployeeRepository(directory, shards, 2)) {
+            String initial = employeeRepository.findVersion();
+            Employee saved = otherInstance.insert(employee("Doe", "john@gmail.com"));
+            String afterInsert = employeeRepository.findVersion();
+            otherInstance.updateFields(saved.getId(), Map.of("firstName", "Johnny"), 0L);
+            String afterUpdate = employeeRepository.findVersion();
+
+            // when - action or the behavior that we are going to test
+            otherInstance.deleteById(saved.getId());
+            String afterDelete = employeeRepository.findVersion();
+            otherInstance.deleteById(saved.getId());
+
+            // then - verify the output - a write that changes nothing leaves the version alone
+            assertThat(List.of(initial, afterInsert, afterUpdate, afterDelete)).doesNotHaveDuplicates();
+            assertThat(employeeRepository.findVersion()).isEqualTo(afterDelete);
+        }
+    }
+
+    @DisplayName("Junit test for a directory entry left without employee row")
+    @Test
+    public void givenOrphanedEmail_whenInsert_thenTakenOverAfterGrace() {
+        // given - precondition or setup
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(directory);
+        jdbcTemplate.update("insert into employee_emails (email, employee_id, reserved_at) values ('john@gmail.com', 999999, current_timestamp)");
+
+        // when - action or the behavior that we are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> employeeRepository.insert(employee("Doe", "john@gmail.com"))).isInstanceOf(DuplicateKeyException.class);
+        jdbcTemplate.update("update employee_emails set reserved_at = dateadd('MINUTE', -2, current_timestamp)");
+        Employee saved = employeeRepository.insert(employee("Doe", "john@gmail.com"));
+        assertThat(employeeRepository.findByEmail("john@gmail.com")).map(Employee::getId).contains(saved.getId());
+    }
+
+    private static List<Employee> employees(int count, String lastName) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> employee(lastName, lastName.toLowerCase() + i + "@gmail.com"))
+                .toList();
+    }
+
+    private static Employee employee(String lastName, String email) {
+        return Employee.builder()
+                .firstName("John")
+                .lastName(lastName)
+                .email(email)
+                .build();
+    }
+
+    private static DataSource h2(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
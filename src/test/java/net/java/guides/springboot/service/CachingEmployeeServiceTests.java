@@ -0,0 +1,191 @@
+package net.java.guides.springboot.service;
+
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.impl.CachingEmployeeService;
+import net.java.guides.springboot.service.impl.EmployeeServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingEmployeeServiceTests {
+    @Mock
+    private EmployeeServiceImpl delegate;
+
+    private CachingEmployeeService employeeService;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        employeeService = new CachingEmployeeService(delegate, 100, Duration.ofMinutes(10));
+        employee = Employee.builder()
+                .id(1L)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("djibril.thiandoum@gmail.com")
+                .build();
+    }
+
+    @DisplayName("Junit test for getEmployeeById served from the cache on the second call")
+    @Test
+    public void givenCachedEmployee_whenGetEmployeeById_thenDatabaseIsHitOnce() {
+        // given - precondition or setup
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        employeeService.getEmployeeById(1L);
+        Optional<Employee> cachedEmployee = employeeService.getEmployeeById(1L);
+
+        // then - verify the output
+        assertThat(cachedEmployee).isPresent();
+        assertThat(cachedEmployee.get().getEmail()).isEqualTo(employee.getEmail());
+        verify(delegate, times(1)).getEmployeeById(1L);
+        assertThat(employeeService.stats().hitCount()).isEqualTo(1);
+        assertThat(employeeService.stats().missCount()).isEqualTo(1);
+        assertThat(employeeService.puts()).isEqualTo(1);
+    }
+
+    @DisplayName("Junit test for getEmployeeVersion read from the database even for a cached employee")
+    @Test
+    public void givenCachedEmployeeUpdatedElsewhere_whenGetEmployeeVersion_thenCurrentVersion() {
+        // given - precondition or setup - another instance has updated the employee since it was cached
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee.toBuilder().version(2L).build()));
+        employeeService.getEmployeeById(1L);
+        given(delegate.getEmployeeVersion(1L)).willReturn(Optional.of(3L));
+
+        // when - action or the behavior that wa are going to test
+        Optional<Long> version = employeeService.getEmployeeVersion(1L);
+
+        // then - verify the output
+        assertThat(version).contains(3L);
+    }
+
+    @DisplayName("Junit test for getEmployeeById returning a copy of the cached employee")
+    @Test
+    public void givenCachedEmployee_whenCallerMutatesResult_thenCacheIsUnchanged() {
+        // given - precondition or setup
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee));
+        employeeService.getEmployeeById(1L).get().setFirstName("Awa");
+
+        // when - action or the behavior that wa are going to test
+        Employee cachedEmployee = employeeService.getEmployeeById(1L).get();
+
+        // then - verify the output
+        assertThat(cachedEmployee.getFirstName()).isEqualTo("Djibril");
+    }
+
+    @DisplayName("Junit test for saveEmployee with the email of a cached employee changed by another instance")
+    @Test
+    public void givenCachedEmailFreedElsewhere_whenSaveEmployee_thenSavedByDatabase() {
+        // given - precondition or setup
+        given(delegate.saveEmployee(employee)).willReturn(employee);
+        employeeService.saveEmployee(employee);
+        Employee newEmployee = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email(employee.getEmail())
+                .build();
+        given(delegate.saveEmployee(newEmployee)).willReturn(newEmployee.toBuilder().id(2L).build());
+
+        // when - action or the behavior that wa are going to test
+        Employee savedEmployee = employeeService.saveEmployee(newEmployee);
+
+        // then - verify the output - the unique index decides, not the cache
+        assertThat(savedEmployee.getId()).isEqualTo(2L);
+        verify(delegate, times(1)).saveEmployee(newEmployee);
+    }
+
+    @DisplayName("Junit test for updateEmployee refreshing the cache")
+    @Test
+    public void givenCachedEmployee_whenUpdateEmail_thenCacheRefreshed() {
+        // given - precondition or setup
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee));
+        employeeService.getEmployeeById(1L);
+        Employee updatedEmployee = employee.toBuilder().email("d.thiandoum@gmail.com").build();
+        given(delegate.updateEmployee(updatedEmployee)).willReturn(updatedEmployee);
+        Employee newEmployee = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("djibril.thiandoum@gmail.com")
+                .build();
+        given(delegate.saveEmployee(newEmployee)).willReturn(newEmployee.toBuilder().id(2L).build());
+
+        // when - action or the behavior that wa are going to test
+        employeeService.updateEmployee(updatedEmployee);
+        employeeService.saveEmployee(newEmployee);
+
+        // then - verify the output
+        assertThat(employeeService.getEmployeeById(1L).get().getEmail()).isEqualTo("d.thiandoum@gmail.com");
+        verify(delegate, times(1)).getEmployeeById(1L);
+        verify(delegate, times(1)).saveEmployee(any(Employee.class));
+    }
+
+    @DisplayName("Junit test for deleteEmployee evicting the cached employee")
+    @Test
+    public void givenCachedEmployee_whenDeleteEmployee_thenNextReadGoesToDatabase() {
+        // given - precondition or setup
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee)).willReturn(Optional.empty());
+        employeeService.getEmployeeById(1L);
+
+        // when - action or the behavior that wa are going to test
+        employeeService.deleteEmployee(1L);
+
+        // then - verify the output
+        assertThat(employeeService.getEmployeeById(1L)).isEmpty();
+        assertThat(employeeService.size()).isZero();
+    }
+
+    @DisplayName("Junit test for updateEmployee evicting the cached employee when the write fails")
+    @Test
+    public void givenFailingUpdate_whenUpdateEmployee_thenCachedEmployeeIsEvicted() {
+        // given - precondition or setup
+        given(delegate.getEmployeeById(1L)).willReturn(Optional.of(employee));
+        employeeService.getEmployeeById(1L);
+        willThrow(new IllegalStateException("boom")).given(delegate).updateEmployee(any(Employee.class));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(IllegalStateException.class, () -> employeeService.updateEmployee(employee));
+
+        // then - verify the output
+        assertThat(employeeService.size()).isZero();
+    }
+
+    @DisplayName("Junit test for getEmployeeById not caching a read that overlapped a write")
+    @Test
+    public void givenPatchDuringLoad_whenGetEmployeeById_thenLoadedEmployeeIsNotCached() {
+        // given - precondition or setup - the patch commits, and evicts, after the read but before it is cached
+        Employee patchedEmployee = employee.toBuilder().firstName("Awa").build();
+        given(delegate.patchEmployee(1L, Map.of("firstName", "Awa"), null)).willReturn(Optional.of(patchedEmployee));
+        given(delegate.getEmployeeById(1L))
+                .willAnswer(invocation -> {
+                    employeeService.patchEmployee(1L, Map.of("firstName", "Awa"), null);
+                    return Optional.of(employee);
+                })
+                .willReturn(Optional.of(patchedEmployee));
+
+        // when - action or the behavior that wa are going to test
+        Optional<Employee> staleEmployee = employeeService.getEmployeeById(1L);
+        Optional<Employee> nextEmployee = employeeService.getEmployeeById(1L);
+
+        // then - verify the output
+        assertThat(staleEmployee.get().getFirstName()).isEqualTo("Djibril");
+        assertThat(nextEmployee.get().getFirstName()).isEqualTo("Awa");
+        verify(delegate, times(2)).getEmployeeById(1L);
+    }
+}
@@ -0,0 +1,262 @@
+package net.java.guides.springboot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeImport;
+import net.java.guides.springboot.service.impl.EmployeeImporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeImporterTests {
+    @Mock
+    private EmployeeService employeeService;
+
+    @TempDir
+    private Path tempDir;
+
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private EmployeeImporter importer;
+
+    // what the mocked service has saved
+    private List<Employee> saved = new ArrayList<>();
+
+    // insertEmployees call that fails, 0 for none
+    private AtomicInteger failingSave = new AtomicInteger();
+    private AtomicInteger saves = new AtomicInteger();
+
+    @BeforeEach
+    public void setup() {
+        importer = new EmployeeImporter(employeeService, objectMapper, tempDir, 2);
+        lenient().when(employeeService.getExistingEmails(anyCollection())).thenAnswer(invocation -> {
+            // case-insensitive, like the email index on MySQL
+            Collection<String> requested = invocation.getArgument(0);
+            Set<String> emails = requested.stream().map(String::toLowerCase).collect(Collectors.toSet());
+            return saved.stream().map(Employee::getEmail).filter(email -> emails.contains(email.toLowerCase())).collect(Collectors.toSet());
+        });
+        lenient().when(employeeService.insertEmployees(anyList())).thenAnswer(invocation -> {
+            if (saves.incrementAndGet() == failingSave.get()) {
+                throw new IllegalStateException("database down");
+            }
+            List<Employee> employees = invocation.getArgument(0);
+            saved.addAll(employees);
+            return employees;
+        });
+    }
+
+    @DisplayName("Junit test for a CSV import rejecting invalid and duplicate rows one by one")
+    @Test
+    public void givenCsvWithInvalidRows_whenImport_thenValidRowsSavedAndOthersReported() throws IOException {
+        // given - precondition or setup
+        saved.add(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build());
+        String csv = """
+                id,firstName,lastName,email,version
+                ,Djibril,Thiandoum,dgthian@gmail.com,
+                ,Awa,Ndiaye,AWA.NDIAYE@gmail.com,
+                ,Moussa,Diop,not-an-email,
+                ,Fatou,,fatou.fall@gmail.com,
+                ,Djibril,Faye,dgthian@gmail.com,
+                ,Omar,Sy,omar.sy@gmail.com,
+                ,Aminata,Ba,aminata.ba@gmail.com,,extra
+                ,Ibrahima,Sow,ibrahima.sow@gmail.com,
+                """;
+
+        // when - action or the behavior that wa are going to test
+        EmployeeImport employeeImport = importer.importEmployees(input(csv), "csv");
+
+        // then - verify the output
+        assertThat(employeeImport.status()).isEqualTo(EmployeeImport.Status.COMPLETED);
+        assertThat(employeeImport.rows()).isEqualTo(8);
+        assertThat(employeeImport.imported()).isEqualTo(3);
+        assertThat(employeeImport.rejected()).isEqualTo(5);
+        assertThat(saved).extracting(Employee::getEmail)
+                .containsExactly("awa.ndiaye@gmail.com", "dgthian@gmail.com", "omar.sy@gmail.com", "ibrahima.sow@gmail.com");
+        List<Map<String, Object>> errors = errors(employeeImport);
+        assertThat(errors).extracting(error -> error.get("row"), error -> error.get("error")).startsWith(
+                tuple(2, "email is already taken"),
+                tuple(3, "email is not valid"),
+                tuple(4, "lastName is required"),
+                tuple(5, "email is already taken"));
+        assertThat(errors).hasSize(5).last()
+                .satisfies(error -> assertThat(error.get("row")).isEqualTo(7))
+                .satisfies(error -> assertThat((String) error.get("error")).startsWith("malformed CSV record: Too many entries"));
+        assertThat(importer.getImport(employeeImport.id())).contains(employeeImport);
+        // one lookup per chunk with rows left to insert (the second one has none), not repeated by the insert
+        verify(employeeService, times(3)).getExistingEmails(anyCollection());
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    @DisplayName("Junit test for an NDJSON import with a malformed line")
+    @Test
+    public void givenNdjsonWithMalformedLine_whenImport_thenOtherLinesSaved() throws IOException {
+        // given - precondition or setup
+        String ndjson = """
+                {"id":42,"firstName":"Djibril","lastName":"Thiandoum","email":"dgthian@gmail.com","version":7}
+                {"firstName":"Awa",
+
+                {"firstName":"Omar","lastName":"Sy","email":"omar.sy@gmail.com"}
+                """;
+
+        // when - action or the behavior that wa are going to test
+        EmployeeImport employeeImport = importer.importEmployees(input(ndjson), "ndjson");
+
+        // then - verify the output
+        assertThat(employeeImport.status()).isEqualTo(EmployeeImport.Status.COMPLETED);
+        assertThat(employeeImport.imported()).isEqualTo(2);
+        assertThat(employeeImport.rejected()).isEqualTo(1);
+        assertThat(saved).extracting(Employee::getId).containsOnlyNulls();
+        assertThat(saved).extracting(Employee::getVersion).containsOnlyNulls();
+        assertThat(errors(employeeImport)).singleElement()
+                .satisfies(error -> assertThat(error.get("row")).isEqualTo(2))
+                .satisfies(error -> assertThat((String) error.get("error")).startsWith("malformed JSON"));
+    }
+
+    @DisplayName("Junit test for a chunk whose email was taken by a concurrent insert after the lookup")
+    @Test
+    public void givenEmailTakenAfterLookup_whenImport_thenChunkRetriedWithNewEmployees() throws IOException {
+        // given - precondition or setup
+        String csv = """
+                firstName,lastName,email
+                Djibril,Thiandoum,dgthian@gmail.com
+                Awa,Ndiaye,awa.ndiaye@gmail.com
+                """;
+        List<List<Employee>> inserted = new ArrayList<>();
+        given(employeeService.insertEmployees(anyList())).willAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            inserted.add(employees);
+            if (inserted.size() == 1) {
+                // persist assigns ids and versions, then the concurrent insert makes the transaction roll back
+                employees.forEach(employee -> {
+                    employee.setId(1L);
+                    employee.setVersion(0L);
+                });
+                saved.add(Employee.builder().firstName("Awa").lastName("Diallo").email("awa.ndiaye@gmail.com").build());
+                throw new DuplicateEmailException("duplicate");
+            }
+            saved.addAll(employees);
+            return employees;
+        });
+
+        // when - action or the behavior that wa are going to test
+        EmployeeImport employeeImport = importer.importEmployees(input(csv), "csv");
+
+        // then - verify the output - the retry inserts the remaining row as a new employee
+        assertThat(employeeImport.imported()).isEqualTo(1);
+        assertThat(employeeImport.rejected()).isEqualTo(1);
+        assertThat(inserted).hasSize(2);
+        assertThat(inserted.get(1)).singleElement()
+                .satisfies(employee -> assertThat(employee.getEmail()).isEqualTo("dgthian@gmail.com"))
+                .satisfies(employee -> assertThat(employee.getId()).isNull())
+                .satisfies(employee -> assertThat(employee.getVersion()).isNull());
+        assertThat(errors(employeeImport)).extracting(error -> error.get("row"), error -> error.get("error"))
+                .containsExactly(tuple(2, "email is already taken"));
+    }
+
+    @DisplayName("Junit test for a failed import resumed after its last checkpoint")
+    @Test
+    public void givenImportFailedMidway_whenResume_thenRemainingRowsImportedOnce() throws IOException {
+        // given - precondition or setup
+        StringBuilder csv = new StringBuilder("firstName,lastName,email\n");
+        for (int i = 1; i <= 7; i++) {
+            csv.append("Djibril,Thiandoum,").append(i == 4 ? "invalid" : "djibril" + i + "@gmail.com").append('\n');
+        }
+        // the database is down when the third chunk is written
+        failingSave.set(3);
+        EmployeeImport failed = importer.importEmployees(input(csv.toString()), "csv");
+
+        // when - action or the behavior that wa are going to test
+        EmployeeImport resumed = importer.runImport(failed.id(), input(csv.toString()), "csv");
+
+        // then - verify the output
+        assertThat(failed.status()).isEqualTo(EmployeeImport.Status.FAILED);
+        assertThat(failed.error()).isEqualTo("database down");
+        assertThat(failed.rows()).isEqualTo(4);
+        assertThat(resumed.status()).isEqualTo(EmployeeImport.Status.COMPLETED);
+        assertThat(resumed.rows()).isEqualTo(7);
+        assertThat(resumed.imported()).isEqualTo(6);
+        assertThat(resumed.rejected()).isEqualTo(1);
+        Set<String> emails = new HashSet<>();
+        assertThat(saved).extracting(Employee::getEmail).allMatch(emails::add).hasSize(6);
+        assertThat(errors(resumed)).extracting(error -> error.get("row")).containsExactly(4);
+        assertThatThrownBy(() -> importer.runImport(failed.id(), input(csv.toString()), "csv"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("Junit test for an import created before its input is sent")
+    @Test
+    public void givenCreatedImport_whenRunImport_thenFollowedUnderTheSameId() throws IOException {
+        // given - precondition or setup
+        EmployeeImport created = importer.createImport("ndjson");
+        EmployeeImport progress = importer.getImport(created.id()).orElseThrow();
+
+        // when - action or the behavior that wa are going to test
+        EmployeeImport completed = importer.runImport(created.id(),
+                input("{\"firstName\":\"Omar\",\"lastName\":\"Sy\",\"email\":\"omar.sy@gmail.com\"}\n"), "ndjson");
+
+        // then - verify the output
+        assertThat(progress.status()).isEqualTo(EmployeeImport.Status.CREATED);
+        assertThat(completed.id()).isEqualTo(created.id());
+        assertThat(completed.status()).isEqualTo(EmployeeImport.Status.COMPLETED);
+        assertThat(completed.imported()).isEqualTo(1);
+        assertThatThrownBy(() -> importer.runImport(created.id(), input("firstName,lastName,email\n"), "csv"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @DisplayName("Junit test for an import in an unknown format or of an unknown id")
+    @Test
+    public void givenUnknownFormatOrId_whenImport_thenRejected() throws IOException {
+        // when - action or the behavior that wa are going to test
+        // then - verify the output
+        assertThatThrownBy(() -> importer.importEmployees(input("a,b"), "xlsx")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(importer.getImport("../../etc/passwd")).isEmpty();
+        assertThat(importer.getErrorReport("../../etc/passwd")).isEmpty();
+    }
+
+    private List<Map<String, Object>> errors(EmployeeImport employeeImport) throws IOException {
+        Path report = importer.getErrorReport(employeeImport.id()).orElseThrow();
+        List<Map<String, Object>> errors = new ArrayList<>();
+        for (String line : Files.readAllLines(report)) {
+            errors.add(objectMapper.readValue(line, new TypeReference<Map<String, Object>>() {}));
+        }
+        return errors;
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
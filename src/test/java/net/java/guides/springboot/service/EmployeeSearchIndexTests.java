@@ -0,0 +1,172 @@
+package net.java.guides.springboot.service;
+
+import jakarta.persistence.EntityManager;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.EmployeeRepository;
+import net.java.guides.springboot.service.impl.EmployeeSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+public class EmployeeSearchIndexTests {
+    private EmployeeSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setup() {
+        searchIndex = new EmployeeSearchIndex(null, null, true, Duration.ofMinutes(1));
+        searchIndex.put(Employee.builder().id(1L).firstName("Djibril").lastName("Thiandoum").email("djibril.thiandoum@gmail.com").build());
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@yahoo.fr").build());
+        searchIndex.put(Employee.builder().id(3L).firstName("Moussa").lastName("Diop").email("moussa.diop@gmail.com").build());
+    }
+
+    @DisplayName("Junit test for prefix search over names and email")
+    @Test
+    public void givenIndexedEmployees_whenSearchPrefix_thenReturnMatches() {
+        // when - action or the behavior that wa are going to test
+        List<Employee> byFirstName = searchIndex.search("dji", 10);
+        List<Employee> byEmailDomain = searchIndex.search("GMAIL", 10);
+
+        // then - verify the output
+        assertThat(byFirstName).extracting(Employee::getId).containsExactly(1L);
+        assertThat(byEmailDomain).extracting(Employee::getId).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @DisplayName("Junit test for queries too short to search")
+    @Test
+    public void givenShortWordsOnly_whenSearch_thenNothingFound() {
+        // when - action or the behavior that wa are going to test
+        List<Employee> shortWord = searchIndex.search("dj", 10);
+        List<Employee> shortWords = searchIndex.search("a n", 10);
+        List<Employee> narrowedByShortWord = searchIndex.search("awa n", 10);
+
+        // then - verify the output - a short word still narrows down the matches of a longer one
+        assertThat(shortWord).isEmpty();
+        assertThat(shortWords).isEmpty();
+        assertThat(narrowedByShortWord).extracting(Employee::getId).containsExactly(2L);
+    }
+
+    @DisplayName("Junit test for search requiring every word of the query")
+    @Test
+    public void givenSeveralWords_whenSearch_thenEveryWordMustMatch() {
+        // when - action or the behavior that wa are going to test
+        List<Employee> employees = searchIndex.search("gmail moussa", 10);
+        List<Employee> none = searchIndex.search("gmail awa", 10);
+        List<Employee> limited = searchIndex.search("gmail", 1);
+
+        // then - verify the output
+        assertThat(employees).extracting(Employee::getId).containsExactly(3L);
+        assertThat(none).isEmpty();
+        assertThat(limited).hasSize(1);
+    }
+
+    @DisplayName("Junit test for updates and removals keeping the index in sync")
+    @Test
+    public void givenIndexedEmployee_whenUpdatedAndRemoved_thenSearchReflectsChanges() {
+        // when - action or the behavior that wa are going to test
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(1L).build());
+        searchIndex.remove(3L);
+
+        // then - verify the output
+        assertThat(searchIndex.search("ndiaye", 10)).extracting(Employee::getId).containsExactly(2L);
+        assertThat(searchIndex.search("sow", 10)).extracting(Employee::getId).containsExactly(2L);
+        assertThat(searchIndex.search("awa ndiaye", 10).get(0).getLastName()).isEqualTo("Sow");
+        assertThat(searchIndex.search("awa ndiaye", 10).get(0).getVersion()).isEqualTo(1L);
+        assertThat(searchIndex.search("moussa", 10)).isEmpty();
+    }
+
+    @DisplayName("Junit test for an older version indexed after a newer one")
+    @Test
+    public void givenNewerVersionIndexed_whenOlderVersionPut_thenNewerKept() {
+        // given - precondition or setup
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(2L).build());
+
+        // when - action or the behavior that wa are going to test
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Fall").email("awa.ndiaye@yahoo.fr").version(1L).build());
+
+        // then - verify the output
+        assertThat(searchIndex.search("sow", 10)).extracting(Employee::getId).containsExactly(2L);
+        assertThat(searchIndex.search("fall", 10)).isEmpty();
+    }
+
+    @DisplayName("Junit test for the callback of an older update run after the one of a delete")
+    @Test
+    public void givenDeletedEmployee_whenOlderVersionPut_thenStaysDeleted() {
+        // given - precondition or setup
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(1L).build());
+        searchIndex.remove(2L);
+
+        // when - action or the behavior that wa are going to test
+        searchIndex.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(1L).build());
+
+        // then - verify the output
+        assertThat(searchIndex.search("awa", 10)).isEmpty();
+    }
+
+    @DisplayName("Junit test for the tombstone of a delete expiring")
+    @Test
+    public void givenTombstoneExpired_whenOlderVersionPut_thenIndexedAgain() {
+        // given - precondition or setup - tombstones expire right away
+        EmployeeSearchIndex index = new EmployeeSearchIndex(null, null, true, Duration.ZERO);
+        index.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(1L).build());
+        index.remove(2L);
+
+        // when - action or the behavior that wa are going to test
+        index.put(Employee.builder().id(2L).firstName("Awa").lastName("Sow").email("awa.ndiaye@yahoo.fr").version(1L).build());
+
+        // then - verify the output - the deleted id is not remembered any longer
+        assertThat(index.search("awa", 10)).extracting(Employee::getId).containsExactly(2L);
+    }
+
+    @DisplayName("Junit test for terms lower-cased independently of the default locale")
+    @Test
+    public void givenTurkishDefaultLocale_whenSearch_thenCapitalIMatches() {
+        // given - precondition or setup
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            searchIndex.put(Employee.builder().id(4L).firstName("IBRAHIMA").lastName("Sow").email("isow@gmail.com").build());
+
+            // when - action or the behavior that wa are going to test
+            List<Employee> employees = searchIndex.search("ibrahima sow", 10);
+
+            // then - verify the output
+            assertThat(employees).extracting(Employee::getId).containsExactly(4L);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @DisplayName("Junit test for writes committed while the index is being built")
+    @Test
+    public void givenWritesDuringScan_whenBuild_thenScannedRowsDoNotOverrideThem() {
+        // given - precondition or setup
+        EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+        // tombstones expire right away, yet are kept while the scan runs
+        EmployeeSearchIndex index = new EmployeeSearchIndex(employeeRepository, mock(EntityManager.class), true, Duration.ZERO);
+        Employee fatou = Employee.builder().id(4L).firstName("Fatou").lastName("Fall").email("fatou.fall@gmail.com").version(0L).build();
+        Employee omar = Employee.builder().id(5L).firstName("Omar").lastName("Sy").email("omar.sy@gmail.com").version(0L).build();
+        given(employeeRepository.streamAllOrderById()).willAnswer(invocation -> {
+            // committed once the scan has started, it still reads the rows as they were before
+            index.put(fatou.toBuilder().lastName("Diallo").version(1L).build());
+            index.remove(omar.getId());
+            return Stream.of(fatou, omar);
+        });
+
+        // when - action or the behavior that wa are going to test
+        index.build();
+
+        // then - verify the output
+        assertThat(index.search("fatou", 10)).extracting(Employee::getLastName).containsExactly("Diallo");
+        assertThat(index.search("omar", 10)).isEmpty();
+        assertThat(index.search("fatou", 10)).extracting(Employee::getVersion).containsExactly(1L);
+    }
+}
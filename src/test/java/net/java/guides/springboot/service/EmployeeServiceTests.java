@@ -1,26 +1,46 @@
 package net.java.guides.springboot.service;
 
-import net.java.guides.springboot.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import net.java.guides.springboot.exception.DuplicateEmailException;
 import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.model.EmployeeChange;
+import net.java.guides.springboot.repository.EmployeeChangeRepository;
 import net.java.guides.springboot.repository.EmployeeRepository;
+import net.java.guides.springboot.service.impl.EmployeeChangeRelay;
+import net.java.guides.springboot.service.impl.EmployeeMetrics;
+import net.java.guides.springboot.service.impl.EmployeeSearchIndex;
 import net.java.guides.springboot.service.impl.EmployeeServiceImpl;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.BDDMockito.willDoNothing;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -30,6 +50,23 @@ public class EmployeeServiceTests {
     @Mock
     private EmployeeRepository employeeRepository;
 
+    @Mock
+    private EmployeeChangeRepository changeRepository;
+
+    @Mock
+    private EmployeeChangeRelay changeRelay;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EmployeeSearchIndex searchIndex;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private EmployeeMetrics metrics = new EmployeeMetrics(meterRegistry);
+
     @InjectMocks
     private EmployeeServiceImpl employeeService;
 
@@ -53,8 +90,7 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeObject() {
         // given - precondition or setup
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.empty());
-        given(employeeRepository.save(employee)).willReturn(employee);
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
 
         System.out.println(employeeRepository);
         System.out.println(employeeService);
@@ -64,6 +100,7 @@ public class EmployeeServiceTests {
 
         // then - verify the output
         assertThat(savedEmployee).isNotNull();
+        verify(searchIndex, times(1)).put(savedEmployee);
     }
 
     // Junit test for saveEmployee method
@@ -71,19 +108,85 @@ public class EmployeeServiceTests {
     @Test
     public void givenExistingEmail_whenSaveEmployee_thenThrowException() {
         // given - precondition or setup
-        given(employeeRepository.findByEmail(employee.getEmail())).willReturn(Optional.of(employee));
-        //given(employeeRepository.save(employee)).willReturn(employee);
+        given(employeeRepository.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Duplicate entry 'djibril.thiandoum@gmail.com' for key 'employees.uk_employees_email'")));
 
         System.out.println(employeeRepository);
         System.out.println(employeeService);
         // when - action or the behavior that wa are going to test
-        assertThrows(ResourceNotFoundException.class, () ->{
+        assertThrows(DuplicateEmailException.class, () ->{
             employeeService.saveEmployee(employee);
         });
+        // then - the unique index is the only check, no lookup by email
+        verify(employeeRepository,never()).findByEmail(any());
+        assertThat(meterRegistry.get("employee.rejections").tag("reason", "duplicate_email").counter().count()).isEqualTo(1.0);
+    }
+
+    // Junit test for saveEmployee method
+    @DisplayName("Junit test for saveEmployee method with an unrelated constraint violation")
+    @Test
+    public void givenOtherConstraintViolation_whenSaveEmployee_thenRethrowException() {
+        // given - precondition or setup
+        given(employeeRepository.saveAndFlush(employee)).willThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Column 'first_name' cannot be null")));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(DataIntegrityViolationException.class, () -> employeeService.saveEmployee(employee));
+    }
+
+
+    // Junit test for saveEmployees method
+    @DisplayName("Junit test for saveEmployees method")
+    @Test
+    public void givenEmployeesList_whenSaveEmployees_thenSavedWithOneDuplicateCheck() {
+        // given - precondition or setup
+        Employee employee2 = Employee.builder()
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build();
+        List<Employee> employees = List.of(employee, employee2);
+        given(employeeRepository.findExistingEmails(any())).willReturn(Collections.emptyList());
+        given(employeeRepository.saveAll(employees)).willReturn(employees);
+
+        // when - action or the behavior that wa are going to test
+        List<Employee> savedEmployees = employeeService.saveEmployees(employees);
+
+        // then - verify the output
+        assertThat(savedEmployees).hasSize(2);
+        verify(employeeRepository, times(1)).findExistingEmails(any());
+        verify(employeeRepository, never()).findByEmail(any());
+        verify(entityManager, times(1)).flush();
+    }
+
+    // Junit test for saveEmployees method
+    @DisplayName("Junit test for saveEmployees method which throw exception")
+    @Test
+    public void givenExistingEmail_whenSaveEmployees_thenThrowException() {
+        // given - precondition or setup
+        given(employeeRepository.findExistingEmails(any())).willReturn(List.of(employee.getEmail()));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(DuplicateEmailException.class, () -> employeeService.saveEmployees(List.of(employee)));
+
         // then
-        verify(employeeRepository,never()).save(any(Employee.class));
+        verify(employeeRepository, never()).saveAll(any());
     }
 
+    // Junit test for saveEmployees method
+    @DisplayName("Junit test for saveEmployees method with the same email twice in the batch")
+    @Test
+    public void givenDuplicateEmailInBatch_whenSaveEmployees_thenThrowException() {
+        // given - precondition or setup
+        Employee sameEmail = employee.toBuilder().id(null).firstName("Awa").build();
+        given(employeeRepository.findExistingEmails(any())).willReturn(Collections.emptyList());
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(DuplicateEmailException.class, () -> employeeService.saveEmployees(List.of(employee, sameEmail)));
+
+        // then
+        verify(employeeRepository, never()).saveAll(any());
+    }
 
     // Junit test for getAllEmployees method
     @DisplayName("Junit test for getAllEmployees method")
@@ -128,6 +231,43 @@ public class EmployeeServiceTests {
         assertThat(employeeList).size().isEqualTo(0);
     }
 
+    // Junit test for getEmployeesAfter method
+    @DisplayName("Junit test for getEmployeesAfter method (keyset pagination)")
+    @Test
+    public void givenAfterIdAndLimit_whenGetEmployeesAfter_thenReturnNextPage() {
+        // given - precondition or setup
+        given(employeeRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(10))).willReturn(List.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        List<Employee> employeeList = employeeService.getEmployeesAfter(0L, 10);
+
+        // then - verify the output
+        assertThat(employeeList).containsExactly(employee);
+    }
+
+    // Junit test for streamAllEmployees method
+    @DisplayName("Junit test for streamAllEmployees method")
+    @Test
+    public void givenEmployeesStream_whenStreamAllEmployees_thenEachEmployeeIsVisitedAndDetached() {
+        // given - precondition or setup
+        Employee employee2 = Employee.builder()
+                .id(2L)
+                .firstName("Awa")
+                .lastName("Ndiaye")
+                .email("awa.ndiaye@gmail.com")
+                .build();
+        given(employeeRepository.streamAllOrderById()).willReturn(Stream.of(employee, employee2));
+        List<Employee> visited = new ArrayList<>();
+
+        // when - action or the behavior that wa are going to test
+        employeeService.streamAllEmployees(visited::add);
+
+        // then - verify the output
+        assertThat(visited).containsExactly(employee, employee2);
+        verify(entityManager, times(1)).detach(employee);
+        verify(entityManager, times(1)).detach(employee2);
+    }
+
     // Junit test for getEmployeeById method
     @DisplayName("Junit test for getEmployeeById method")
     @Test
@@ -148,7 +288,7 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmployeeObject_whenUpdateEmployee_thenReturnUpdatedEmployee() {
         // given - precondition or setup
-        given(employeeRepository.save(employee)).willReturn(employee);
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
         employee.setEmail("awa.ndiaye@gmail.com");
         employee.setFirstName("Awa");
 
@@ -161,6 +301,86 @@ public class EmployeeServiceTests {
     }
 
 
+    @DisplayName("Junit test for patchEmployee method updating only the given fields")
+    @Test
+    public void givenChanges_whenPatchEmployee_thenReturnPatchedEmployee() {
+        // given - precondition or setup
+        Map<String, Object> changes = Map.of("email", "awa.ndiaye@gmail.com");
+        given(employeeRepository.updateFields(1L, changes, 0L)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        Optional<Employee> patched = employeeService.patchEmployee(1L, changes, 0L);
+
+        // then - verify the output
+        assertThat(patched).contains(employee);
+        verify(employeeRepository, never()).existsById(any(Long.class));
+        verify(searchIndex, times(1)).put(employee);
+        verify(changeRepository, times(1)).recordChanges(eq(EmployeeChange.Type.UPDATED), eq(List.of(1L)), any(Instant.class));
+    }
+
+    @DisplayName("Junit test for patchEmployee method with a stale version")
+    @Test
+    public void givenStaleVersion_whenPatchEmployee_thenThrowsException() {
+        // given - precondition or setup
+        Map<String, Object> changes = Map.of("email", "awa.ndiaye@gmail.com");
+        given(employeeRepository.updateFields(1L, changes, 0L)).willThrow(new ObjectOptimisticLockingFailureException(Employee.class, 1L));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(OptimisticLockingFailureException.class, () -> employeeService.patchEmployee(1L, changes, 0L));
+
+        // then - verify the output
+        verify(changeRepository, never()).recordChanges(any(), anyCollection(), any());
+    }
+
+    @DisplayName("Junit test for patchEmployee method with an email already taken")
+    @Test
+    public void givenExistingEmail_whenPatchEmployee_thenThrowException() {
+        // given - precondition or setup
+        Map<String, Object> changes = Map.of("email", "awa.ndiaye@gmail.com");
+        given(employeeRepository.updateFields(1L, changes, 0L)).willThrow(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Duplicate entry 'awa.ndiaye@gmail.com' for key 'employees.uk_employees_email'")));
+
+        // when - action or the behavior that wa are going to test
+        assertThrows(DuplicateEmailException.class, () -> employeeService.patchEmployee(1L, changes, 0L));
+
+        // then - verify the output
+        verify(searchIndex, never()).put(any(Employee.class));
+        verify(changeRepository, never()).recordChanges(any(), anyCollection(), any());
+        assertThat(meterRegistry.get("employee.rejections").tags("reason", "duplicate_email", "operation", "patch").counter().count()).isEqualTo(1.0);
+    }
+
+    @DisplayName("Junit test for patchEmployee method on a missing employee")
+    @Test
+    public void givenMissingEmployee_whenPatchEmployee_thenReturnEmpty() {
+        // given - precondition or setup
+        Map<String, Object> changes = Map.of("email", "awa.ndiaye@gmail.com");
+        given(employeeRepository.updateFields(1L, changes, null)).willReturn(Optional.empty());
+
+        // when - action or the behavior that wa are going to test
+        Optional<Employee> patched = employeeService.patchEmployee(1L, changes, null);
+
+        // then - verify the output
+        assertThat(patched).isEmpty();
+        verify(employeeRepository, never()).existsById(any(Long.class));
+        verify(changeRepository, never()).recordChanges(any(), anyCollection(), any());
+        assertThat(meterRegistry.get("employee.rejections").tags("reason", "not_found", "operation", "patch").counter().count()).isEqualTo(1.0);
+    }
+
+    // Junit test for getEmployeesByName method
+    @DisplayName("Junit test for getEmployeesByName method")
+    @Test
+    public void givenName_whenGetEmployeesByName_thenReturnPage() {
+        // given - precondition or setup
+        given(employeeRepository.findByLastNameAndFirstNameOrderByIdAsc("THIANDOUM", "Djibril", PageRequest.of(1, 20)))
+                .willReturn(List.of(employee));
+
+        // when - action or the behavior that wa are going to test
+        List<Employee> employees = employeeService.getEmployeesByName("Djibril", "THIANDOUM", 1, 20);
+
+        // then - verify the output
+        assertThat(employees).containsExactly(employee);
+    }
+
     // Junit test for deleteEmployee method
     @DisplayName("Junit test for deleteEmployee method")
     @Test
@@ -168,12 +388,35 @@ public class EmployeeServiceTests {
         long employeeId = 1L;
 
         // given - precondition or setup
-        willDoNothing().given(employeeRepository).deleteById(employeeId);
+        given(employeeRepository.deleteEmployeeById(employeeId)).willReturn(1);
+        given(changeRepository.recordChanges(eq(EmployeeChange.Type.DELETED), eq(List.of(employeeId)), any(Instant.class))).willReturn(1);
+
+        // when - action or the behavior that wa are going to test
+        boolean deleted = employeeService.deleteEmployee(employeeId);
+
+        // then - verify the output - a single DELETE statement, no load by id first
+        assertThat(deleted).isTrue();
+        verify(employeeRepository,times(1)).deleteEmployeeById(employeeId);
+        verify(employeeRepository, never()).findById(employeeId);
+        // the change event is copied from the row before it is deleted, the relay is woken up for it
+        InOrder inOrder = inOrder(changeRepository, employeeRepository);
+        inOrder.verify(changeRepository).recordChanges(eq(EmployeeChange.Type.DELETED), eq(List.of(employeeId)), any(Instant.class));
+        inOrder.verify(employeeRepository).deleteEmployeeById(employeeId);
+        verify(changeRelay, times(1)).wakeUp();
+    }
+
+    // Junit test for deleteEmployees method
+    @DisplayName("Junit test for deleteEmployees method")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenReturnDeletedCount() {
+        // given - precondition or setup
+        given(employeeRepository.deleteEmployeesByIdIn(anyCollection())).willReturn(2);
 
         // when - action or the behavior that wa are going to test
-        employeeService.deleteEmployee(employeeId);
+        int deleted = employeeService.deleteEmployees(List.of(1L, 2L, 2L));
 
-        // then - verify the output - How many times deleteById method is called
-        verify(employeeRepository,times(1)).deleteById(employeeId);
+        // then - verify the output - duplicate ids collapse into a single IN list
+        assertThat(deleted).isEqualTo(2);
+        verify(employeeRepository, times(1)).deleteEmployeesByIdIn(anyCollection());
     }
 }
@@ -0,0 +1,300 @@
+package net.java.guides.springboot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.service.impl.EmployeeWriteBehindQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeWriteBehindQueueTests {
+    @Mock
+    private EmployeeService employeeService;
+
+    @TempDir
+    private Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private Path logPath;
+
+    @BeforeEach
+    public void setup() {
+        logPath = tempDir.resolve("write-behind.log");
+    }
+
+    @DisplayName("Junit test for queued creates written in one batch")
+    @Test
+    public void givenQueuedCreates_whenFlush_thenSavedInOneBatchAndLogTruncated() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee djibril = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build();
+        Employee awa = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build();
+        queue.enqueueCreate(djibril);
+        queue.enqueueCreate(awa);
+
+        // when - action or the behavior that wa are going to test
+        int flushed = queue.flush();
+
+        // then - verify the output
+        assertThat(flushed).isEqualTo(2);
+        verify(employeeService, times(1)).saveEmployees(argThat(employees -> emails(employees).equals(List.of(djibril.getEmail(), awa.getEmail()))));
+        assertThat(Files.size(logPath)).isZero();
+        assertThat(meterRegistry.get("employee.write-behind.flush").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("employee.write-behind.queue.depth").gauge().value()).isZero();
+    }
+
+    @DisplayName("Junit test for repeated updates of one employee coalesced into one")
+    @Test
+    public void givenTwoUpdatesOfOneEmployee_whenFlush_thenOneUpdateWithLastValuesAndLastVersion() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        queue.enqueueUpdate(1L, Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").version(3L).build());
+        queue.enqueueUpdate(1L, Employee.builder().firstName("Djibril").lastName("Ndiaye").email("dgthian@gmail.com").version(4L).build());
+        Map<String, Object> lastValues = Map.of("firstName", "Djibril", "lastName", "Ndiaye", "email", "dgthian@gmail.com");
+        given(employeeService.patchEmployee(1L, lastValues, 4L)).willReturn(Optional.of(Employee.builder().id(1L).version(5L).build()));
+
+        // when - action or the behavior that wa are going to test
+        queue.flush();
+
+        // then - verify the output
+        verify(employeeService, times(1)).patchEmployee(1L, lastValues, 4L);
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    @DisplayName("Junit test for a duplicate email in a queued batch")
+    @Test
+    public void givenDuplicateInBatch_whenFlush_thenOthersSavedAndDuplicateDropped() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee djibril = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build();
+        Employee awa = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build();
+        queue.enqueueCreate(djibril);
+        queue.enqueueCreate(awa);
+        given(employeeService.saveEmployees(anyList())).willThrow(new DuplicateEmailException("duplicate"));
+        given(employeeService.saveEmployee(argThat(saved -> saved.getEmail().equals(djibril.getEmail()))))
+                .willThrow(new DuplicateEmailException("duplicate"));
+
+        // when - action or the behavior that wa are going to test
+        queue.flush();
+
+        // then - verify the output
+        verify(employeeService, times(1)).saveEmployee(argThat(saved -> saved.getEmail().equals(awa.getEmail())));
+        assertThat(meterRegistry.get("employee.write-behind.dropped").tag("reason", "duplicate_email").counter().count()).isEqualTo(1.0);
+    }
+
+    @DisplayName("Junit test for a row violating a constraint followed by a good row")
+    @Test
+    public void givenBadRowThenGoodRow_whenFlush_thenBadRowDroppedAndGoodRowSaved() throws IOException {
+        // given - precondition or setup - e.g. replayed from a log written before the requests were validated
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee bad = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("x".repeat(300)).build();
+        Employee good = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build();
+        queue.enqueueCreate(bad);
+        queue.enqueueCreate(good);
+        DataIntegrityViolationException tooLong = new DataIntegrityViolationException("Value too long for column EMAIL");
+        given(employeeService.saveEmployees(anyList())).willThrow(tooLong);
+        given(employeeService.saveEmployee(argThat(saved -> saved.getEmail().equals(bad.getEmail())))).willThrow(tooLong);
+
+        // when - action or the behavior that wa are going to test
+        int flushed = queue.flush();
+        int flushedAgain = queue.flush();
+
+        // then - verify the output - nothing is left to retry, the log is truncated
+        assertThat(flushed).isEqualTo(2);
+        assertThat(flushedAgain).isZero();
+        verify(employeeService, times(1)).saveEmployees(anyList());
+        verify(employeeService, times(1)).saveEmployee(argThat(saved -> saved.getEmail().equals(good.getEmail())));
+        assertThat(meterRegistry.get("employee.write-behind.dropped").tag("reason", "invalid").counter().count()).isEqualTo(1.0);
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for a batch failing on an unavailable database")
+    @Test
+    public void givenDatabaseDown_whenFlush_thenBatchKeptAndRetried() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee djibril = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build();
+        queue.enqueueCreate(djibril);
+        // persist assigns an id and version before the transaction rolls back
+        given(employeeService.saveEmployees(anyList()))
+                .willAnswer(invocation -> {
+                    List<Employee> employees = invocation.getArgument(0);
+                    employees.forEach(employee -> {
+                        employee.setId(1L);
+                        employee.setVersion(0L);
+                    });
+                    throw new DataAccessResourceFailureException("database down");
+                })
+                .willReturn(List.of(djibril));
+
+        // when - action or the behavior that wa are going to test
+        queue.flush();
+        queue.flush();
+
+        // then - verify the output - the retry inserts new instances again
+        verify(employeeService, times(2)).saveEmployees(argThat(employees -> emails(employees).equals(List.of(djibril.getEmail()))));
+        verify(employeeService).saveEmployees(argThat(employees -> employees.get(0).getId() == null && employees.get(0).getVersion() == null));
+        verify(employeeService, never()).saveEmployee(any(Employee.class));
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for a batch failing part way through")
+    @Test
+    public void givenDatabaseDownAfterCreates_whenFlush_thenOnlyUnwrittenEntriesRetried() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee djibril = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build();
+        Employee awa = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").version(2L).build();
+        Employee fatou = Employee.builder().firstName("Fatou").lastName("Diop").email("fatou.diop@gmail.com").version(5L).build();
+        queue.enqueueCreate(djibril);
+        queue.enqueueUpdate(1L, awa);
+        queue.enqueueUpdate(2L, fatou);
+        Map<String, Object> awaValues = Map.of("firstName", "Awa", "lastName", "Ndiaye", "email", "awa.ndiaye@gmail.com");
+        Map<String, Object> fatouValues = Map.of("firstName", "Fatou", "lastName", "Diop", "email", "fatou.diop@gmail.com");
+        given(employeeService.patchEmployee(1L, awaValues, 2L)).willReturn(Optional.of(awa.toBuilder().id(1L).version(3L).build()));
+        given(employeeService.patchEmployee(2L, fatouValues, 5L))
+                .willThrow(new DataAccessResourceFailureException("database down"))
+                .willReturn(Optional.of(fatou.toBuilder().id(2L).version(6L).build()));
+
+        // when - action or the behavior that wa are going to test
+        queue.flush();
+        queue.flush();
+
+        // then - verify the output - the create and the first update are not written again, nothing is dropped
+        verify(employeeService, times(1)).saveEmployees(anyList());
+        verify(employeeService, times(1)).patchEmployee(1L, awaValues, 2L);
+        verify(employeeService, times(2)).patchEmployee(2L, fatouValues, 5L);
+        assertThat(meterRegistry.find("employee.write-behind.dropped").counter()).isNull();
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for writes replayed from the log after a crash")
+    @Test
+    public void givenUnflushedLog_whenQueueRestarted_thenWritesReplayed() throws IOException {
+        // given - precondition or setup
+        Employee djibril = Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build();
+        newQueue(10).enqueueCreate(djibril);
+
+        // when - action or the behavior that wa are going to test
+        EmployeeWriteBehindQueue restarted = newQueue(10);
+        restarted.flush();
+
+        // then - verify the output
+        verify(employeeService, times(1)).saveEmployees(argThat(employees -> emails(employees).equals(List.of(djibril.getEmail()))));
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for a log replayed after a crash that followed a partial flush")
+    @Test
+    public void givenPartiallyFlushedLog_whenQueueRestarted_thenOnlyUnwrittenWritesReplayed() throws IOException {
+        // given - precondition or setup - the first update is written, the database goes down before the second
+        EmployeeWriteBehindQueue queue = newQueue(10);
+        Employee awa = Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build();
+        Employee fatou = Employee.builder().firstName("Fatou").lastName("Diop").email("fatou.diop@gmail.com").build();
+        queue.enqueueUpdate(1L, awa);
+        queue.enqueueUpdate(2L, fatou);
+        Map<String, Object> awaValues = Map.of("firstName", "Awa", "lastName", "Ndiaye", "email", "awa.ndiaye@gmail.com");
+        Map<String, Object> fatouValues = Map.of("firstName", "Fatou", "lastName", "Diop", "email", "fatou.diop@gmail.com");
+        given(employeeService.patchEmployee(1L, awaValues, null)).willReturn(Optional.of(awa.toBuilder().id(1L).version(1L).build()));
+        given(employeeService.patchEmployee(2L, fatouValues, null))
+                .willThrow(new DataAccessResourceFailureException("database down"))
+                .willReturn(Optional.of(fatou.toBuilder().id(2L).version(1L).build()));
+        queue.flush();
+
+        // when - action or the behavior that wa are going to test - the process dies before the next flush
+        EmployeeWriteBehindQueue restarted = newQueue(10);
+        restarted.flush();
+
+        // then - verify the output - the unversioned update already applied is not applied again
+        verify(employeeService, times(1)).patchEmployee(1L, awaValues, null);
+        verify(employeeService, times(2)).patchEmployee(2L, fatouValues, null);
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for the log under steady load, never fully written")
+    @Test
+    public void givenWritesQueuedDuringEachBatch_whenFlush_thenLogStaysBounded() throws IOException {
+        // given - precondition or setup - every batch written lets as many new writes in
+        EmployeeWriteBehindQueue queue = newQueue(100);
+        AtomicInteger created = new AtomicInteger();
+        for (int i = 0; i < 50; i++) {
+            queue.enqueueCreate(employee(created.getAndIncrement()));
+        }
+        List<Long> logSizes = new ArrayList<>();
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            logSizes.add(Files.size(logPath));
+            while (created.get() < 10_000 && queue.size() < 50) {
+                queue.enqueueCreate(employee(created.getAndIncrement()));
+            }
+            return invocation.getArgument(0);
+        });
+
+        // when - action or the behavior that wa are going to test
+        int flushed = queue.flush();
+
+        // then - verify the output - at most a hundred writes are ever unwritten, the log never holds all 10000
+        assertThat(flushed).isEqualTo(10_000);
+        assertThat(logSizes).hasSize(200);
+        assertThat(Collections.max(logSizes)).isLessThan(5 * logSizes.get(0));
+        assertThat(Files.size(logPath)).isZero();
+    }
+
+    @DisplayName("Junit test for a full write-behind queue")
+    @Test
+    public void givenFullQueue_whenEnqueue_thenRejected() throws IOException {
+        // given - precondition or setup
+        EmployeeWriteBehindQueue queue = newQueue(1);
+        queue.enqueueCreate(Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian@gmail.com").build());
+
+        // when - action or the behavior that wa are going to test
+        boolean accepted = queue.enqueueCreate(Employee.builder().firstName("Awa").lastName("Ndiaye").email("awa.ndiaye@gmail.com").build());
+
+        // then - verify the output
+        assertThat(accepted).isFalse();
+        assertThat(queue.size()).isEqualTo(1);
+    }
+
+    private static Employee employee(int i) {
+        return Employee.builder().firstName("Djibril").lastName("Thiandoum").email("dgthian" + i + "@gmail.com").build();
+    }
+
+    // the queue works on copies, compare what was written by email
+    private static List<String> emails(List<Employee> employees) {
+        return employees.stream().map(Employee::getEmail).toList();
+    }
+
+    private EmployeeWriteBehindQueue newQueue(int capacity) throws IOException {
+        return new EmployeeWriteBehindQueue(employeeService, new ObjectMapper(), meterRegistry, capacity, 50,
+                Duration.ofMillis(200), logPath, false);
+    }
+}
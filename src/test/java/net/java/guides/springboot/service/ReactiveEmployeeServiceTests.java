@@ -0,0 +1,110 @@
+package net.java.guides.springboot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.java.guides.springboot.exception.DuplicateEmailException;
+import net.java.guides.springboot.model.Employee;
+import net.java.guides.springboot.repository.ReactiveEmployeeIdGenerator;
+import net.java.guides.springboot.repository.ReactiveEmployeeRepository;
+import net.java.guides.springboot.service.impl.EmployeeMetrics;
+import net.java.guides.springboot.service.impl.ReactiveEmployeeServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveEmployeeServiceTests {
+    @Mock
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Mock
+    private ReactiveEmployeeIdGenerator idGenerator;
+
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ReactiveEmployeeServiceImpl employeeService;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup() {
+        employeeService = new ReactiveEmployeeServiceImpl(employeeRepository, idGenerator, new EmployeeMetrics(meterRegistry));
+        employee = Employee.builder()
+                .id(1L)
+                .firstName("Djibril")
+                .lastName("Thiandoum")
+                .email("djibril.thiandoum@gmail.com")
+                .version(3L)
+                .build();
+    }
+
+    @DisplayName("Junit test for updateEmployee method returning the row as updated")
+    @Test
+    public void givenCurrentVersion_whenUpdateEmployee_thenReturnUpdatedRow() {
+        // given - precondition or setup
+        Employee updatedRow = employee.toBuilder().version(4L).build();
+        given(employeeRepository.update(employee)).willReturn(Mono.just(1L));
+        given(employeeRepository.findById(1L)).willReturn(Mono.just(updatedRow));
+
+        // when - action or the behavior that wa are going to test
+        Employee updatedEmployee = employeeService.updateEmployee(employee).block();
+
+        // then - verify the output
+        assertThat(updatedEmployee.getVersion()).isEqualTo(4L);
+    }
+
+    @DisplayName("Junit test for updateEmployee method with a stale version")
+    @Test
+    public void givenStaleVersion_whenUpdateEmployee_thenThrowsException() {
+        // given - precondition or setup
+        given(employeeRepository.update(employee)).willReturn(Mono.just(0L));
+        given(employeeRepository.findById(1L)).willReturn(Mono.just(employee.toBuilder().version(5L).build()));
+
+        // when - action or the behavior that wa are going to test
+        Mono<Employee> update = employeeService.updateEmployee(employee);
+
+        // then - verify the output
+        assertThrows(OptimisticLockingFailureException.class, update::block);
+    }
+
+    @DisplayName("Junit test for updateEmployee method on a missing employee")
+    @Test
+    public void givenMissingEmployee_whenUpdateEmployee_thenReturnEmpty() {
+        // given - precondition or setup
+        given(employeeRepository.update(employee)).willReturn(Mono.just(0L));
+        given(employeeRepository.findById(1L)).willReturn(Mono.empty());
+
+        // when - action or the behavior that wa are going to test
+        Employee updatedEmployee = employeeService.updateEmployee(employee).block();
+
+        // then - verify the output
+        assertThat(updatedEmployee).isNull();
+        assertThat(meterRegistry.get("employee.rejections").tags("reason", "not_found", "operation", "update").counter().count()).isEqualTo(1.0);
+    }
+
+    @DisplayName("Junit test for updateEmployee method with an email already taken")
+    @Test
+    public void givenExistingEmail_whenUpdateEmployee_thenThrowException() {
+        // given - precondition or setup
+        given(employeeRepository.update(employee)).willReturn(Mono.error(new DataIntegrityViolationException("could not execute statement",
+                new SQLException("Duplicate entry 'djibril.thiandoum@gmail.com' for key 'employees.uk_employees_email'"))));
+
+        // when - action or the behavior that wa are going to test
+        Mono<Employee> update = employeeService.updateEmployee(employee);
+
+        // then - verify the output
+        assertThrows(DuplicateEmailException.class, update::block);
+        assertThat(meterRegistry.get("employee.rejections").tags("reason", "duplicate_email", "operation", "update").counter().count()).isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,29 @@
+package net.java.guides.springboot.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the SQL Hibernate prepares, for tests that check the statements a repository method generates (EXPLAIN
+ * of a finder). Opt in with
+ * {@code spring.jpa.properties.hibernate.session_factory.statement_inspector=net.java.guides.springboot.support.RecordingStatementInspector}.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+    private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    public static void clear() {
+        STATEMENTS.clear();
+    }
+
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.add(sql);
+        return sql;
+    }
+}
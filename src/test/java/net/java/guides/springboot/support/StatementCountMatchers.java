@@ -0,0 +1,29 @@
+package net.java.guides.springboot.support;
+
+import net.java.guides.springboot.config.StatementCountingFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * MockMvc matchers on the SQL statements a request made Hibernate prepare, as counted by
+ * {@link StatementCountingFilter}. Any {@code @SpringBootTest} with {@code @AutoConfigureMockMvc} can opt in:
+ * <pre>
+ * mockMvc.perform(get("/api/employees/{id}", id)).andExpect(statements(1));
+ * </pre>
+ */
+public final class StatementCountMatchers {
+
+    private StatementCountMatchers() {
+    }
+
+    public static ResultMatcher statements(int expected) {
+        return request().attribute(StatementCountingFilter.STATEMENTS_ATTRIBUTE, expected);
+    }
+
+    // for reads the second-level cache may answer without any statement
+    public static ResultMatcher statementsAtMost(int maximum) {
+        return request().attribute(StatementCountingFilter.STATEMENTS_ATTRIBUTE, lessThanOrEqualTo(maximum));
+    }
+}